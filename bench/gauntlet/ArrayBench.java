@@ -0,0 +1,35 @@
+package gauntlet;
+
+// Scalar against Vector API kernels for the array natives.
+// Run with --add-modules jdk.incubator.vector to include the vector kernels.
+public class ArrayBench {
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+        double[] a = new double[length];
+        double[] b = new double[length];
+        double[] out = new double[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 0.5;
+            b[i] = length - i;
+        }
+
+        Kernels[] kernels = Kernels.INSTANCE instanceof Kernels.Scalar
+                ? new Kernels[]{Kernels.INSTANCE}
+                : new Kernels[]{new Kernels.Scalar(), Kernels.INSTANCE};
+        for (int round = 0; round < 3; round++) {
+            for (Kernels k : kernels) {
+                double sink = 0;
+                int reps = 2_000;
+                long start = System.nanoTime();
+                for (int r = 0; r < reps; r++) {
+                    sink += k.sum(a) + k.dot(a, b) + k.max(b);
+                    k.add(a, b, out);
+                    k.scale(out, 0.5, out);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-14s %,.0f elements/s (%s)%n", k.getClass().getSimpleName(),
+                        5.0 * reps * length / seconds, sink + out[length - 1]);
+            }
+        }
+    }
+}
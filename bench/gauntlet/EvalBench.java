@@ -0,0 +1,43 @@
+package gauntlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+// Evaluation throughput of the tree-walking interpreter, excluding scanning and parsing.
+// Usage: EvalBench [statements per program] [seconds per round]
+public class EvalBench {
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Stmt> program = new Parser(new Scanner(source(statements)).scanTokens()).parse();
+        Interpreter interpreter = new Interpreter(new PrintStream(OutputStream.nullOutputStream()), new Env());
+
+        for (int round = 0; round < 5; round++) {
+            long executed = 0;
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            long start = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                interpreter.interpret(program);
+                executed += program.size();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: %,.0f statements/s%n", round, executed / elapsed);
+        }
+    }
+
+    // A mix of every expression kind, so the dispatch sees a realistic spread of node types.
+    static String source(int statements) {
+        StringBuilder src = new StringBuilder("var a = 1; var b = 2; var c = 3; var s = \"x\"; var t = true;\n");
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0 -> src.append("a = (a + b) * (c - 1) / 2 - -b;\n");
+                case 1 -> src.append("b = a - b * c + (a / c);\n");
+                case 2 -> src.append("c = -(c - 1.5) * 2 / (b + 0.5); t = nil;\n");
+                default -> src.append("s = \"x\" + \"y\";\n");
+            }
+        }
+        return src.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package gauntlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+// Call overhead: naive recursive fib, which is nothing but calls, comparisons and arithmetic.
+// Usage: FibBench [n] [rounds]
+public class FibBench {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        String src = "fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                + "print fib(" + n + ");\n";
+        List<Stmt> program = new Parser(new Scanner(src).scanTokens()).parse();
+        new Resolver().resolve(program);
+        Interpreter interpreter = new Interpreter(new PrintStream(OutputStream.nullOutputStream()), new Env());
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            interpreter.interpret(program);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: fib(%d) in %.3f s%n", round, n, elapsed);
+        }
+    }
+}
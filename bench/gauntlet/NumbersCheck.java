@@ -0,0 +1,71 @@
+package gauntlet;
+
+import java.util.Random;
+
+// Differential check for Numbers: parses random literals and formats random doubles, and compares
+// every result with Double.parseDouble and Double.toString (less its trailing ".0").
+//
+// Usage: NumbersCheck [values] [seed]
+public class NumbersCheck {
+    public static void main(String[] args) {
+        int values = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < values; i++) {
+            String literal = literal(random);
+            double parsed = Numbers.parse(literal, 0, literal.length());
+            if (Double.doubleToRawLongBits(parsed) != Double.doubleToRawLongBits(Double.parseDouble(literal))) {
+                fail("parse(\"" + literal + "\") = " + parsed + ", expected " + Double.parseDouble(literal));
+            }
+
+            double value = value(random);
+            text.setLength(0);
+            Numbers.append(text, value);
+            String expected = Double.toString(value);
+            if (expected.endsWith(".0")) expected = expected.substring(0, expected.length() - 2);
+            if (!expected.contentEquals(text)) {
+                fail("append(" + Double.doubleToRawLongBits(value) + "L) = " + text + ", expected " + expected);
+            }
+        }
+        System.out.println(values + " literals and values, no mismatches.");
+    }
+
+    private static void fail(String message) {
+        System.out.println("MISMATCH: " + message);
+        System.exit(1);
+    }
+
+    // digits[.digits], as the scanner hands them over; lengths cover both sides of the fast path.
+    private static String literal(Random random) {
+        StringBuilder literal = new StringBuilder();
+        digits(random, literal, 1 + random.nextInt(random.nextBoolean() ? 6 : 22));
+        if (random.nextBoolean()) {
+            literal.append('.');
+            digits(random, literal, 1 + random.nextInt(random.nextBoolean() ? 4 : 26));
+        }
+        return literal.toString();
+    }
+
+    private static void digits(Random random, StringBuilder out, int count) {
+        for (int i = 0; i < count; i++) out.append((char) ('0' + random.nextInt(10)));
+    }
+
+    // Mostly the shapes scripts print: integers, short decimals and their arithmetic, plus any
+    // finite double and the edges of the plain-notation range.
+    private static double value(Random random) {
+        double value = switch (random.nextInt(6)) {
+            case 0 -> random.nextInt(20_000_000) - 10_000_000;
+            case 1 -> random.nextInt(1_000_000) / Math.pow(10, random.nextInt(8));
+            case 2 -> (random.nextInt(1000) / 10.0) * (random.nextInt(1000) / 100.0);
+            case 3 -> random.nextInt(1000) / 10.0 + random.nextInt(1000) / 100.0;
+            case 4 -> random.nextBoolean() ? Math.nextUp(1e7) * random.nextDouble() : 1e-3 * (1 + random.nextDouble());
+            default -> {
+                double any = Double.longBitsToDouble(random.nextLong());
+                yield Double.isFinite(any) ? any : 0.5;
+            }
+        };
+        return random.nextBoolean() ? value : -value;
+    }
+}
@@ -0,0 +1,118 @@
+package gauntlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Differential check for Optimizer: runs random top-level programs with and without the pass and
+// compares their output, runtime errors and exit code. After each program every global is read
+// back the way a REPL line would, so a dropped store that was still visible shows up too.
+//
+// Usage: OptimizerCheck [programs] [seed]
+public class OptimizerCheck {
+    private static final String[] NAMES = {"a", "b", "c", "d", "e"};
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "==", "!=", "<", ">="};
+
+    public static void main(String[] args) {
+        int programs = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+
+        for (int i = 0; i < programs; i++) {
+            String src = program(random);
+            String plain = run(src, false);
+            String optimized = run(src, true);
+            if (!plain.equals(optimized)) {
+                System.out.println("MISMATCH in program " + i + ":\n" + src);
+                System.out.println("--- without the pass\n" + plain + "--- with the pass\n" + optimized);
+                System.exit(1);
+            }
+        }
+        System.out.println(programs + " programs, no mismatches.");
+    }
+
+    private static String run(String src, boolean optimize) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        Session session = new Session(stream, stream);
+        Gauntlet.runIn(session, () -> {
+            try {
+                List<Stmt> statements = new Parser(src, new Scanner(src).scanTokens()).parse();
+                new Resolver().resolve(statements);
+                if (session.hasError) return;
+                if (optimize) statements = new Optimizer().optimize(statements);
+                session.interpreter.interpret(statements);
+            } catch (RuntimeException e) {
+                // Type errors the interpreter does not check yet surface as Java exceptions.
+                stream.println("threw " + e.getClass().getName());
+            }
+            stream.println("exit " + session.exitCode());
+
+            for (String name : NAMES) {
+                String line = "print " + name + ";";
+                List<Stmt> read = new Parser(line, new Scanner(line).scanTokens()).parse();
+                new Resolver().resolve(read);
+                session.interpreter.interpret(read);
+            }
+        });
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    static String program(Random random) {
+        // Expressions come back often, so the pass has something to reuse and to invalidate.
+        List<String> seen = new ArrayList<>();
+        StringBuilder src = new StringBuilder();
+        src.append("fun f() { ").append(name(random)).append(" = ").append(literal(random)).append("; }\n");
+        // Most programs start with every global defined, so they run long enough to matter.
+        if (random.nextInt(5) > 0) {
+            for (String name : NAMES) src.append("var ").append(name).append(" = ").append(random.nextInt(10)).append(";\n");
+        }
+        int statements = 5 + random.nextInt(21);
+        for (int i = 0; i < statements; i++) {
+            double r = random.nextDouble();
+            String name = name(random);
+            if (r < 0.3) src.append("var ").append(name).append(" = ").append(expression(random, seen)).append(";\n");
+            else if (r < 0.55) src.append(name).append(" = ").append(expression(random, seen)).append(";\n");
+            else if (r < 0.75) src.append("print ").append(expression(random, seen)).append(";\n");
+            else if (r < 0.8) src.append("f();\n");
+            else if (r < 0.85) src.append("{ print ").append(name).append("; }\n");
+            else if (r < 0.9) src.append("if (").append(name).append(") print ").append(expression(random, seen)).append(";\n");
+            else if (r < 0.95) src.append(expression(random, seen)).append(";\n");
+            else src.append("var ").append(name).append(";\n");
+        }
+        return src.toString();
+    }
+
+    private static String expression(Random random, List<String> seen) {
+        if (!seen.isEmpty() && random.nextDouble() < 0.4) return seen.get(random.nextInt(seen.size()));
+        String expression = expression(random, 0);
+        seen.add(expression);
+        return expression;
+    }
+
+    private static String expression(Random random, int depth) {
+        double r = random.nextDouble();
+        if (depth > 2 || r < 0.3) return random.nextDouble() < 0.6 ? name(random) : literal(random);
+        if (r < 0.4) return "(" + expression(random, depth + 1) + ")";
+        if (r < 0.5) return (random.nextBoolean() ? "-" : "!") + expression(random, depth + 1);
+        return expression(random, depth + 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)] + " "
+                + expression(random, depth + 1);
+    }
+
+    private static String literal(Random random) {
+        return switch (random.nextInt(8)) {
+            case 0, 1, 2 -> Integer.toString(random.nextInt(10));
+            case 3 -> "\"s" + random.nextInt(3) + "\"";
+            case 4 -> "true";
+            case 5 -> "nil";
+            default -> "1.5";
+        };
+    }
+
+    private static String name(Random random) {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+}
@@ -0,0 +1,95 @@
+package gauntlet;
+
+import java.util.Random;
+
+// Builds synthetic scripts whose size along each dimension can be dialled independently, so a
+// scaling run can grow one dimension while holding the others still.
+public class ProgramGenerator {
+    // statements:  top-level statements after the declarations
+    // depth:       operands in each arithmetic expression (a left-deep Expr.Binary chain)
+    // identifiers: distinct globals declared and referenced
+    // stringSize:  characters in each string literal
+    // comments:    line comments before each statement
+    // blockLines:  lines in a block comment before each statement, or no block comment if 0
+    public record Shape(int statements, int depth, int identifiers, int stringSize, int comments,
+                        int blockLines) {
+        public static final Shape SMALL = new Shape(200, 4, 16, 8, 0, 0);
+
+        public Shape withStatements(int n) {
+            return new Shape(n, depth, identifiers, stringSize, comments, blockLines);
+        }
+
+        public Shape withDepth(int n) {
+            return new Shape(statements, n, identifiers, stringSize, comments, blockLines);
+        }
+
+        public Shape withIdentifiers(int n) {
+            return new Shape(statements, depth, n, stringSize, comments, blockLines);
+        }
+
+        public Shape withStringSize(int n) {
+            return new Shape(statements, depth, identifiers, n, comments, blockLines);
+        }
+
+        public Shape withComments(int n) {
+            return new Shape(statements, depth, identifiers, stringSize, n, blockLines);
+        }
+
+        public Shape withBlockLines(int n) {
+            return new Shape(statements, depth, identifiers, stringSize, comments, n);
+        }
+    }
+
+    private static final String COMMENT = "// the quick brown fox jumps over the lazy dog";
+    // Stars and slashes that do not close the comment, so the scanner has to look past them.
+    private static final String BLOCK_LINE = " * the quick brown fox / jumps over the lazy dog *";
+
+    public static String generate(Shape shape, long seed) {
+        Random random = new Random(seed);
+        StringBuilder src = new StringBuilder();
+
+        String text = "x".repeat(shape.stringSize());
+        src.append("var text = \"").append(text).append("\";\n");
+        for (int i = 0; i < Math.max(1, shape.identifiers()); i++) {
+            // Not a bare literal, so the optimizer remembers every declaration.
+            src.append("var n").append(i).append(" = ").append(i).append(" + 1;\n");
+        }
+
+        for (int i = 0; i < shape.statements(); i++) {
+            for (int c = 0; c < shape.comments(); c++) src.append(COMMENT).append('\n');
+            if (shape.blockLines() > 0) {
+                src.append("/*\n");
+                for (int c = 0; c < shape.blockLines(); c++) src.append(BLOCK_LINE).append('\n');
+                src.append(" */\n");
+            }
+
+            switch (random.nextInt(8)) {
+                case 0 -> src.append("text = \"").append(text).append("\" + \"!\";\n");
+                case 1 -> src.append("print ").append(expression(random, shape)).append(";\n");
+                default -> src.append(identifier(random, shape)).append(" = ")
+                        .append(expression(random, shape)).append(";\n");
+            }
+        }
+        return src.toString();
+    }
+
+    private static String expression(Random random, Shape shape) {
+        StringBuilder expr = new StringBuilder(operand(random, shape));
+        for (int i = 1; i < shape.depth(); i++) {
+            expr.append(switch (random.nextInt(3)) {
+                case 0 -> " + ";
+                case 1 -> " - ";
+                default -> " * ";
+            }).append(operand(random, shape));
+        }
+        return expr.toString();
+    }
+
+    private static String operand(Random random, Shape shape) {
+        return random.nextBoolean() ? identifier(random, shape) : Integer.toString(random.nextInt(10));
+    }
+
+    private static String identifier(Random random, Shape shape) {
+        return "n" + random.nextInt(Math.max(1, shape.identifiers()));
+    }
+}
@@ -0,0 +1,175 @@
+package gauntlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.IntFunction;
+
+// Grows one program dimension at a time, measures each phase and peak heap against input size,
+// and fits the growth exponent k in time ~ size^k. Linear phases come out near 1; anything
+// clearly above the stored baseline fails the run. Recorded exponents are capped at 1, so the
+// baseline never accepts superlinear growth.
+//
+// Usage: ScalingBench [--record] [baseline file]
+public class ScalingBench {
+    private static final Path DEFAULT_BASELINE = Path.of("bench/scaling-baseline.properties");
+    // Exponents are noisy on small inputs; only flag growth this far above the baseline.
+    private static final double TOLERANCE = 0.35;
+    private static final double LINEAR = 1.0;
+    // Best of this many runs per size; fewer left single scans of the smaller sizes swinging 0.6..1.2.
+    private static final int REPEATS = 9;
+    private static final int WARMUPS = 3;
+    private static final int[] STEPS = {1, 2, 4, 8, 16};
+
+    private record Dimension(String name, int unit, IntFunction<ProgramGenerator.Shape> shape) {
+    }
+
+    private static final List<Dimension> DIMENSIONS = List.of(
+            new Dimension("statements", 5_000, n -> ProgramGenerator.Shape.SMALL.withStatements(n)),
+            new Dimension("depth", 64, n -> ProgramGenerator.Shape.SMALL.withDepth(n)),
+            new Dimension("identifiers", 8_000, n -> ProgramGenerator.Shape.SMALL.withIdentifiers(n)),
+            new Dimension("stringSize", 200_000, n -> ProgramGenerator.Shape.SMALL.withStringSize(n)),
+            new Dimension("comments", 128, n -> ProgramGenerator.Shape.SMALL.withComments(n)),
+            new Dimension("blockComments", 128, n -> ProgramGenerator.Shape.SMALL.withBlockLines(n))
+    );
+
+    private static final String[] METRICS = {"scan", "parse", "optimize", "execute", "heap"};
+
+    public static void main(String[] args) throws Exception {
+        boolean record = args.length > 0 && args[0].equals("--record");
+        Path baselineFile = args.length > (record ? 1 : 0) ? Path.of(args[record ? 1 : 0]) : DEFAULT_BASELINE;
+
+        // Deep expressions recurse once per operand, so give the measurements a roomy stack.
+        Properties measured = new Properties();
+        Thread runner = new Thread(null, () -> measureAll(measured), "scaling", 512L << 20);
+        runner.start();
+        runner.join();
+
+        if (record) {
+            // The baseline is the accepted shape, and nothing above linear is accepted.
+            for (String key : measured.stringPropertyNames()) {
+                if (Double.parseDouble(measured.getProperty(key)) > LINEAR) {
+                    System.out.println("Warning: " + key + " measured " + measured.getProperty(key)
+                            + "; recording " + LINEAR + " instead.");
+                    measured.setProperty(key, String.format("%.3f", LINEAR));
+                }
+            }
+            try (Writer writer = Files.newBufferedWriter(baselineFile)) {
+                measured.store(writer, "Growth exponents from ScalingBench; regenerate with --record");
+            }
+            System.out.println("Recorded baseline to " + baselineFile);
+            return;
+        }
+
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; run with --record to create one.");
+            return;
+        }
+        System.exit(compare(measured, load(baselineFile)) ? 0 : 1);
+    }
+
+    private static void measureAll(Properties measured) {
+        System.out.printf("%-13s %8s %8s %8s %8s %8s%n", "dimension", "scan", "parse", "optimize", "execute", "heap");
+        for (Dimension dimension : DIMENSIONS) {
+            double[] sizes = new double[STEPS.length];
+            double[][] samples = new double[METRICS.length][STEPS.length];
+
+            // Warm up on the largest input so the small sizes are not measured in the interpreter.
+            String largest = ProgramGenerator.generate(dimension.shape().apply(dimension.unit() * STEPS[STEPS.length - 1]), 1);
+            for (int w = 0; w < WARMUPS; w++) run(largest);
+
+            for (int i = 0; i < STEPS.length; i++) {
+                String src = ProgramGenerator.generate(dimension.shape().apply(dimension.unit() * STEPS[i]), 1);
+                sizes[i] = src.length();
+                double[] best = run(src);
+                for (int r = 1; r < REPEATS; r++) {
+                    double[] sample = run(src);
+                    for (int m = 0; m < best.length; m++) best[m] = Math.min(best[m], sample[m]);
+                }
+                for (int m = 0; m < METRICS.length; m++) samples[m][i] = best[m];
+            }
+
+            StringBuilder row = new StringBuilder(String.format("%-13s", dimension.name()));
+            for (int m = 0; m < METRICS.length; m++) {
+                double exponent = exponent(sizes, samples[m]);
+                measured.setProperty(dimension.name() + "." + METRICS[m], String.format("%.3f", exponent));
+                row.append(String.format(" %8.2f", exponent));
+            }
+            System.out.println(row);
+        }
+    }
+
+    // Nanoseconds per phase, then peak heap bytes over the whole run.
+    private static double[] run(String src) {
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) heap.add(pool);
+        }
+        System.gc();
+        for (MemoryPoolMXBean pool : heap) pool.resetPeakUsage();
+
+        // The same phases Gauntlet.run goes through; parse includes resolving, as in its metrics.
+        long start = System.nanoTime();
+        List<Token> tokens = new Scanner(src).scanTokens();
+        long scanned = System.nanoTime();
+        List<Stmt> statements = new Parser(src, tokens).parse();
+        new Resolver().resolve(statements);
+        long parsed = System.nanoTime();
+        statements = new Optimizer().optimize(statements);
+        long optimized = System.nanoTime();
+        new Interpreter(new PrintStream(OutputStream.nullOutputStream()), new Env()).interpret(statements);
+        long executed = System.nanoTime();
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heap) peak += pool.getPeakUsage().getUsed();
+        return new double[]{scanned - start, parsed - scanned, optimized - parsed, executed - optimized, peak};
+    }
+
+    // Least-squares slope of log(value) against log(size).
+    static double exponent(double[] sizes, double[] values) {
+        int n = sizes.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < n; i++) {
+            double x = Math.log(sizes[i]);
+            double y = Math.log(Math.max(1, values[i]));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    private static boolean compare(Properties measured, Properties baseline) {
+        boolean ok = true;
+        for (String key : measured.stringPropertyNames()) {
+            String expected = baseline.getProperty(key);
+            if (expected == null) continue;
+            double actual = Double.parseDouble(measured.getProperty(key));
+            if (actual > Double.parseDouble(expected) + TOLERANCE) {
+                System.out.printf("REGRESSION %s: exponent %.2f, baseline %s%n", key, actual, expected);
+                ok = false;
+            }
+        }
+        if (ok) System.out.println("All growth exponents within " + TOLERANCE + " of the baseline.");
+        return ok;
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,71 @@
+package gauntlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs many I/O-bound scripts at once, each on its own virtual thread, and checks that the JVM
+// gets by with a bounded number of platform threads.
+// Usage: VirtualThreadLoad [scripts] [max platform threads]
+public class VirtualThreadLoad {
+    public static void main(String[] args) throws Exception {
+        int scripts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int maxPlatformThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        Path data = Files.createTempFile("gauntlet-load", ".txt");
+        Files.writeString(data, "payload ".repeat(128));
+        String script = """
+                var start = now();
+                sleep(200);
+                var text = readFile("%s");
+                sleep(100);
+                print now() - start;
+                """.formatted(data.toString().replace("\\", "/"));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        }
+
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        long start = System.nanoTime();
+        int failed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> runs = new ArrayList<>(scripts);
+            for (int i = 0; i < scripts; i++) {
+                runs.add(executor.submit(() -> Gauntlet.run(script, discard, discard)));
+            }
+            for (Future<Integer> run : runs) {
+                if (run.get() != 0) failed++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Files.delete(data);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heap) peakHeap += pool.getPeakUsage().getUsed();
+        int peakThreads = threads.getPeakThreadCount();
+
+        System.out.printf("%,d scripts in %.2fs (%,.0f scripts/s), %d failed%n", scripts, seconds, scripts / seconds, failed);
+        System.out.printf("peak platform threads: %d, peak heap: %,d KB%n", peakThreads, peakHeap / 1024);
+        if (failed > 0 || peakThreads > maxPlatformThreads) {
+            System.out.println("FAILED: expected no failures and at most " + maxPlatformThreads + " platform threads.");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package gauntlet;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocation profile, collected only when the JVM runs with {@code -Dgauntlet.allocations=true}
+ * and printed to stderr at exit. Bytes come from the JVM's per-thread allocation counter, read
+ * around each phase and around each node the interpreter evaluates. A node is charged only what
+ * it allocated itself, not what its children did. Lines are counted per file, so an imported
+ * module's lines stay apart from the script's.
+ */
+final class Allocations {
+    static final boolean ENABLED = Boolean.getBoolean("gauntlet.allocations");
+
+    // Rows printed per table.
+    private static final int TOP = 20;
+
+    // Every node type, so a node added to the generator gets a row without touching this file.
+    private static final List<Class<?>> NODES = nodes();
+    private static final String[] KINDS = NODES.stream()
+            .map(node -> node.getEnclosingClass().getSimpleName() + "." + node.getSimpleName())
+            .toArray(String[]::new);
+    private static final ClassValue<Integer> KIND = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NODES.indexOf(type);
+        }
+    };
+
+    private static final com.sun.management.ThreadMXBean THREADS = ENABLED
+            ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+
+    private static final LongAdder[] phases = new LongAdder[Metrics.Phase.values().length];
+    // Phases and nodes run on virtual threads, which the JVM keeps no allocation counter for.
+    private static final LongAdder untracked = new LongAdder();
+    private static final LongAdder untrackedNodes = new LongAdder();
+    // Shared by every virtual thread, so server requests do not each leave a tracker behind.
+    private static final Tracker UNCOUNTED = new Tracker(false);
+    private static final Queue<Tracker> trackers = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Tracker> tracker = ThreadLocal.withInitial(() -> {
+        Tracker created = new Tracker(true);
+        trackers.add(created);
+        return created;
+    });
+
+    static {
+        for (int i = 0; i < phases.length; i++) phases[i] = new LongAdder();
+    }
+
+    private Allocations() {
+    }
+
+    // Prints the report when the JVM exits; does nothing unless the profile is enabled.
+    static void install() {
+        if (!ENABLED) return;
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(Allocations::report, "gauntlet-allocations"));
+    }
+
+    // Bytes the current thread has allocated so far, or -1 on a virtual thread.
+    static long allocated() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    static void phase(Metrics.Phase phase, long startBytes) {
+        long now = allocated();
+        if (startBytes < 0 || now < 0) {
+            untracked.increment();
+        } else {
+            phases[phase.ordinal()].add(now - startBytes);
+        }
+    }
+
+    // file is the script the node belongs to, or null for source without one.
+    static Tracker enter(Expr expr, Path file) {
+        if (Thread.currentThread().isVirtual()) return uncounted();
+        Tracker current = tracker.get();
+        current.enter(KIND.get(expr.getClass()), line(expr), file);
+        return current;
+    }
+
+    static Tracker enter(Stmt stmt, Path file) {
+        if (Thread.currentThread().isVirtual()) return uncounted();
+        Tracker current = tracker.get();
+        current.enter(KIND.get(stmt.getClass()), line(stmt), file);
+        return current;
+    }
+
+    private static Tracker uncounted() {
+        untrackedNodes.increment();
+        return UNCOUNTED;
+    }
+
+    private static List<Class<?>> nodes() {
+        List<Class<?>> nodes = new ArrayList<>();
+        nodes.addAll(Arrays.asList(Expr.class.getPermittedSubclasses()));
+        nodes.addAll(Arrays.asList(Stmt.class.getPermittedSubclasses()));
+        return List.copyOf(nodes);
+    }
+
+    // The line of the node's first token, or the one that names what it does.
+    private static int line(Expr expr) {
+        return switch (expr) {
+            case Expr.Assign assign -> assign.name().line();
+            case Expr.Binary binary -> binary.operator().line();
+            case Expr.Call call -> call.paren().line();
+            case Expr.Get get -> get.name().line();
+            case Expr.Grouping grouping -> line(grouping.expression());
+            case Expr.Literal literal -> literal.token().line();
+            case Expr.Set set -> set.name().line();
+            case Expr.Unary unary -> unary.operator().line();
+            case Expr.Variable variable -> variable.name().line();
+        };
+    }
+
+    private static int line(Stmt stmt) {
+        return switch (stmt) {
+            case Stmt.Block block -> block.body().brace().line();
+            case Stmt.Class klass -> klass.name().line();
+            case Stmt.Expression expression -> line(expression.expression());
+            case Stmt.Function function -> function.name().line();
+            case Stmt.If anIf -> line(anIf.condition());
+            case Stmt.Import anImport -> anImport.keyword().line();
+            case Stmt.Print print -> line(print.expression());
+            case Stmt.Return aReturn -> aReturn.keyword().line();
+            case Stmt.Var var -> var.name().line();
+        };
+    }
+
+    // One thread's counts. Nodes nest, so each open node keeps its start and what its children took.
+    // The tracker's own growth is counted as a child of the open node, so no node is charged for it.
+    static final class Tracker {
+        private final boolean counting;
+        private long[] starts = new long[64];
+        private long[] children = new long[64];
+        private int[] kinds = new int[64];
+        private int[] lines = new int[64];
+        private Path[] files = new Path[64];
+        private int depth;
+
+        private final long[] counts = new long[KINDS.length];
+        private final long[] bytes = new long[KINDS.length];
+        // Self bytes by file, then kind, then line; the last file used is kept at hand.
+        private final Map<Path, long[][]> byFile = new HashMap<>();
+        private Path lastFile;
+        private long[][] lastByLine;
+
+        private Tracker(boolean counting) {
+            this.counting = counting;
+        }
+
+        private void enter(int kind, int line, Path file) {
+            if (depth == starts.length) {
+                long before = allocated();
+                starts = Arrays.copyOf(starts, depth * 2);
+                children = Arrays.copyOf(children, depth * 2);
+                kinds = Arrays.copyOf(kinds, depth * 2);
+                lines = Arrays.copyOf(lines, depth * 2);
+                files = Arrays.copyOf(files, depth * 2);
+                if (depth > 0) children[depth - 1] += allocated() - before;
+            }
+            kinds[depth] = kind;
+            lines[depth] = line;
+            files[depth] = file;
+            children[depth] = 0;
+            starts[depth] = allocated();
+            depth++;
+        }
+
+        void exit() {
+            if (!counting) return;
+            long now = allocated();
+            int top = --depth;
+            if (now < 0) return;
+
+            long total = now - starts[top];
+            long self = total - children[top];
+            if (top > 0) children[top - 1] += total;
+
+            int kind = kinds[top];
+            int line = lines[top];
+            counts[kind]++;
+            bytes[kind] += self;
+
+            boolean grew = false;
+            if (files[top] != lastFile || lastByLine == null) {
+                lastFile = files[top];
+                lastByLine = byFile.get(lastFile);
+                if (lastByLine == null) {
+                    lastByLine = new long[KINDS.length][];
+                    byFile.put(lastFile, lastByLine);
+                    grew = true;
+                }
+            }
+            long[] perLine = lastByLine[kind];
+            if (perLine == null || line >= perLine.length) {
+                perLine = lastByLine[kind] = Arrays.copyOf(perLine == null ? new long[0] : perLine,
+                        Math.max(line + 1, perLine == null ? 64 : perLine.length * 2));
+                grew = true;
+            }
+            perLine[line] += self;
+            if (grew && top > 0) children[top - 1] += allocated() - now;
+        }
+    }
+
+    private record Row(String label, long count, long bytes) {
+    }
+
+    private static void report() {
+        long[] counts = new long[KINDS.length];
+        long[] bytes = new long[KINDS.length];
+        List<Row> lines = new ArrayList<>();
+        for (Tracker each : trackers) {
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                counts[kind] += each.counts[kind];
+                bytes[kind] += each.bytes[kind];
+            }
+            for (Map.Entry<Path, long[][]> file : each.byFile.entrySet()) {
+                String name = file.getKey() == null ? "<source>" : file.getKey().getFileName().toString();
+                for (int kind = 0; kind < KINDS.length; kind++) {
+                    long[] perLine = file.getValue()[kind];
+                    if (perLine == null) continue;
+                    for (int line = 0; line < perLine.length; line++) {
+                        if (perLine[line] > 0) lines.add(new Row(name + ":" + line + "  " + KINDS[kind], 0, perLine[line]));
+                    }
+                }
+            }
+        }
+
+        StringBuilder out = new StringBuilder("Allocation profile (bytes):\n");
+        long total = 0;
+        for (LongAdder phase : phases) total += phase.sum();
+        out.append(String.format("  %-32s %16s%n", "by phase", "bytes"));
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            long phaseBytes = phases[phase.ordinal()].sum();
+            out.append(String.format("    %-30s %,16d %6.1f%%%n", phase.label, phaseBytes,
+                    total == 0 ? 0.0 : 100.0 * phaseBytes / total));
+        }
+        if (untracked.sum() > 0) {
+            out.append("    (").append(untracked.sum()).append(" phases ran on virtual threads and are not counted)\n");
+        }
+        if (untrackedNodes.sum() > 0) {
+            out.append("    (").append(untrackedNodes.sum()).append(" nodes ran on virtual threads and are not counted)\n");
+        }
+
+        List<Row> kinds = new ArrayList<>();
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            if (counts[kind] > 0) kinds.add(new Row(KINDS[kind], counts[kind], bytes[kind]));
+        }
+        out.append(String.format("  %-32s %16s %12s %10s%n", "by node, excluding children", "bytes", "count", "per node"));
+        table(out, kinds);
+        out.append(String.format("  %-32s %16s%n", "by line", "bytes"));
+        table(out, lines);
+        System.err.print(out);
+    }
+
+    private static void table(StringBuilder out, List<Row> rows) {
+        rows.sort(Comparator.comparingLong(Row::bytes).reversed());
+        for (Row row : rows.subList(0, Math.min(TOP, rows.size()))) {
+            out.append(String.format("    %-30s %,16d", row.label(), row.bytes()));
+            if (row.count() > 0) out.append(String.format(" %,12d %10.1f", row.count(), (double) row.bytes() / row.count()));
+            out.append('\n');
+        }
+    }
+}
@@ -1,40 +1,19 @@
 package gauntlet;
 
-public class AstPrinter implements Expr.Visitor<String> {
+public class AstPrinter {
 
     String print(Expr expr) {
-        return expr.accept(this);
-    }
-
-    @Override
-    public String visitAssignExpr(Expr.Assign expr) {
-        return "";
-    }
-
-    @Override
-    public String visitBinaryExpr(Expr.Binary expr) {
-        return parenthesize(expr.operator.lexeme(), expr.left, expr.right);
-    }
-
-    @Override
-    public String visitGroupingExpr(Expr.Grouping expr) {
-        return parenthesize("group", expr.expression);
-    }
-
-    @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
-        if (expr.value == null) return "nil";
-        return expr.value.toString();
-    }
-
-    @Override
-    public String visitUnaryExpr(Expr.Unary expr) {
-        return parenthesize(expr.operator.lexeme(), expr.right);
-    }
-
-    @Override
-    public String visitVariableExpr(Expr.Variable expr) {
-        return "";
+        return switch (expr) {
+            case Expr.Assign assign -> parenthesize("= " + assign.name().lexeme(), assign.value());
+            case Expr.Binary binary -> parenthesize(binary.operator().lexeme(), binary.left(), binary.right());
+            case Expr.Call call -> parenthesize("call " + print(call.callee()), call.arguments().toArray(new Expr[0]));
+            case Expr.Get get -> parenthesize("get " + get.name().lexeme(), get.object());
+            case Expr.Grouping grouping -> parenthesize("group", grouping.expression());
+            case Expr.Literal literal -> literal.value() == null ? "nil" : literal.value().toString();
+            case Expr.Set set -> parenthesize("set " + set.name().lexeme(), set.object(), set.value());
+            case Expr.Unary unary -> parenthesize(unary.operator().lexeme(), unary.right());
+            case Expr.Variable variable -> variable.name().lexeme();
+        };
     }
 
     String parenthesize(String name, Expr... exprs) {
@@ -43,11 +22,10 @@ public class AstPrinter implements Expr.Visitor<String> {
         builder.append("(").append(name);
         for (Expr expr : exprs) {
             builder.append(" ");
-            builder.append(expr.accept(this));
+            builder.append(print(expr));
         }
         builder.append(")");
 
         return builder.toString();
     }
 }
-
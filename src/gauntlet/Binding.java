@@ -0,0 +1,19 @@
+package gauntlet;
+
+// Where a variable reference or declaration lives, filled in by the Resolver before the code runs.
+final class Binding {
+    enum Kind {
+        GLOBAL,  // looked up by name in the global Env
+        LOCAL,   // the value sits directly in frame slot index
+        CELL,    // frame slot index holds a Cell shared with closures
+        UPVALUE  // index into the running closure's captured cells
+    }
+
+    Kind kind = Kind.GLOBAL;
+    int index;
+
+    void set(Kind kind, int index) {
+        this.kind = kind;
+        this.index = index;
+    }
+}
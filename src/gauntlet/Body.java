@@ -0,0 +1,78 @@
+package gauntlet;
+
+import java.util.List;
+import java.util.Set;
+
+// Statements of a block or function body. In lazy mode the parser only matches the braces of a
+// body and keeps where it is in the source and the names it mentions; the body is scanned, parsed
+// and resolved the first time it runs, and kept from then on.
+final class Body {
+    // Dropped once parsed.
+    private String source;
+    // From after the opening brace to after the closing one.
+    private final int from;
+    private final int to;
+    private final Token brace;
+    // Every identifier in the body, nested functions included, for resolving captures up front.
+    final Set<String> names;
+    private final List<Token> params;
+    private final Layout layout;
+    private volatile List<Stmt> statements;
+    private boolean failed = false;
+
+    private Body(String source, int from, int to, Token brace, Set<String> names,
+                 List<Token> params, Layout layout, List<Stmt> statements) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.brace = brace;
+        this.names = names;
+        this.params = params;
+        this.layout = layout;
+        this.statements = statements;
+    }
+
+    static Body of(Token brace, List<Stmt> statements) {
+        return new Body(null, 0, 0, brace, Set.of(), null, null, statements);
+    }
+
+    // params is null for a block.
+    static Body lazy(String source, int from, int to, Token brace, Set<String> names,
+                     List<Token> params, Layout layout) {
+        return new Body(source, from, to, brace, names, params, layout, null);
+    }
+
+    // The opening brace.
+    Token brace() {
+        return brace;
+    }
+
+    boolean isParsed() {
+        return statements != null;
+    }
+
+    List<Stmt> statements() {
+        List<Stmt> parsed = statements;
+        return parsed != null ? parsed : parse();
+    }
+
+    // Syntax and resolution errors are reported as they would have been up front, and the run
+    // stops with a runtime error at the body; the failure is remembered so they print once.
+    private synchronized List<Stmt> parse() {
+        if (statements != null) return statements;
+        if (!failed) {
+            List<Token> tokens = new Scanner(source, from, to, brace.line()).scanTokens();
+            Parser parser = Parser.forBody(source, tokens);
+            List<Stmt> parsed = parser.body();
+            Resolver resolver = new Resolver();
+            if (!parser.hadError()) resolver.resolveBody(parsed, params, layout);
+            if (!parser.hadError() && !resolver.hadError()) {
+                statements = parsed;
+                source = null;
+                return parsed;
+            }
+            failed = true;
+        }
+        throw new RuntimeError(brace, "Syntax error in body.");
+    }
+}
@@ -0,0 +1,164 @@
+package gauntlet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Native functions visible from every global environment. Scripts may shadow them with their own globals.
+//
+// The blocking natives (sleep, readFile) are written so that a script running on a virtual thread
+// parks instead of holding on to its carrier: sleep parks directly, and file reads go through an
+// asynchronous channel on a small dedicated pool while the caller waits on the result.
+final class Builtins {
+    private static final ExecutorService FILE_IO = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "gauntlet-file-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Native(String name, int arity, Function<List<Object>, Object> body) implements GauntletCallable {
+        @Override
+        public Object call(Interpreter interpreter, List<Object> arguments) {
+            return body.apply(arguments);
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+
+    static final Map<String, GauntletCallable> ALL = Map.ofEntries(
+            entry("now", 0, args -> (double) System.currentTimeMillis()),
+            entry("sleep", 1, args -> {
+                sleep(number(args.get(0)));
+                return null;
+            }),
+            entry("readFile", 1, args -> readFile(args.get(0))),
+            entry("array", 1, args -> new NumArray(new double[length(args.get(0))])),
+            entry("range", 1, args -> {
+                double[] values = new double[length(args.get(0))];
+                for (int i = 0; i < values.length; i++) values[i] = i;
+                return new NumArray(values);
+            }),
+            entry("len", 1, args -> (double) array(args.get(0)).length),
+            entry("get", 2, args -> {
+                double[] a = array(args.get(0));
+                return a[index(a, args.get(1))];
+            }),
+            entry("set", 3, args -> {
+                double[] a = array(args.get(0));
+                return a[index(a, args.get(1))] = number(args.get(2));
+            }),
+            entry("sum", 1, args -> Kernels.INSTANCE.sum(array(args.get(0)))),
+            entry("dot", 2, args -> {
+                double[] a = array(args.get(0));
+                double[] b = sameLength(a, args.get(1));
+                return Kernels.INSTANCE.dot(a, b);
+            }),
+            entry("min", 1, args -> Kernels.INSTANCE.min(nonEmpty(args.get(0)))),
+            entry("max", 1, args -> Kernels.INSTANCE.max(nonEmpty(args.get(0)))),
+            entry("add", 2, args -> {
+                double[] a = array(args.get(0));
+                double[] out = new double[a.length];
+                Kernels.INSTANCE.add(a, sameLength(a, args.get(1)), out);
+                return new NumArray(out);
+            }),
+            entry("mul", 2, args -> {
+                double[] a = array(args.get(0));
+                double[] out = new double[a.length];
+                Kernels.INSTANCE.mul(a, sameLength(a, args.get(1)), out);
+                return new NumArray(out);
+            }),
+            entry("scale", 2, args -> {
+                double[] a = array(args.get(0));
+                double[] out = new double[a.length];
+                Kernels.INSTANCE.scale(a, number(args.get(1)), out);
+                return new NumArray(out);
+            })
+    );
+
+    private Builtins() {
+    }
+
+    private static Map.Entry<String, GauntletCallable> entry(String name, int arity, Function<List<Object>, Object> body) {
+        return Map.entry(name, new Native(name, arity, body));
+    }
+
+    private static void sleep(double millis) {
+        if (millis < 0 || Double.isNaN(millis)) throw new IllegalArgumentException("Sleep time must be a non-negative number.");
+        try {
+            Thread.sleep((long) millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while sleeping.");
+        }
+    }
+
+    private static String readFile(Object value) {
+        if (!(value instanceof String)) throw new IllegalArgumentException("Expected a file path.");
+        String path = (String) value;
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+                Path.of(path), Set.of(StandardOpenOption.READ), FILE_IO)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("File '" + path + "' is too large.");
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()).get() < 0) break;
+            }
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        } catch (IOException | ExecutionException e) {
+            throw new IllegalArgumentException("Cannot read file '" + path + "'.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while reading '" + path + "'.");
+        }
+    }
+
+    private static double number(Object value) {
+        if (value instanceof Double) return (double) value;
+        throw new IllegalArgumentException("Expected a number.");
+    }
+
+    private static double[] array(Object value) {
+        if (value instanceof NumArray) return ((NumArray) value).values;
+        throw new IllegalArgumentException("Expected an array.");
+    }
+
+    private static double[] nonEmpty(Object value) {
+        double[] a = array(value);
+        if (a.length == 0) throw new IllegalArgumentException("Expected a non-empty array.");
+        return a;
+    }
+
+    private static double[] sameLength(double[] a, Object value) {
+        double[] b = array(value);
+        if (b.length != a.length) throw new IllegalArgumentException("Arrays must have the same length.");
+        return b;
+    }
+
+    private static int length(Object value) {
+        double n = number(value);
+        if (n < 0 || n != Math.floor(n) || n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Array length must be a non-negative integer.");
+        }
+        return (int) n;
+    }
+
+    private static int index(double[] a, Object value) {
+        double i = number(value);
+        if (i < 0 || i >= a.length || i != Math.floor(i)) throw new IllegalArgumentException("Array index out of bounds.");
+        return (int) i;
+    }
+}
@@ -0,0 +1,10 @@
+package gauntlet;
+
+// A variable that closures capture. Only captured variables pay for the extra indirection.
+final class Cell {
+    Object value;
+
+    Cell(Object value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,37 @@
+package gauntlet;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Thin client for the server: sends a script and relays stdout, stderr and the exit code.
+class Client {
+    static int run(Path script, Path socket) throws IOException {
+        Protocol.Source source = new Protocol.Source(script.toAbsolutePath(),
+                Files.readString(script, StandardCharsets.UTF_8));
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            new Protocol.Writer(channel).write(Protocol.SOURCE, source.encode());
+
+            for (; ; ) {
+                Protocol.Frame frame = Protocol.read(channel);
+                if (frame == null) throw new IOException("Server closed the connection without an exit code.");
+                switch (frame.kind()) {
+                    case Protocol.STDOUT -> System.out.write(frame.payload());
+                    case Protocol.STDERR -> System.err.write(frame.payload());
+                    case Protocol.EXIT -> {
+                        System.out.flush();
+                        System.err.flush();
+                        return frame.exitCode();
+                    }
+                    default -> throw new IOException("Unexpected frame kind " + frame.kind() + ".");
+                }
+            }
+        }
+    }
+}
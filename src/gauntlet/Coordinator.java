@@ -0,0 +1,212 @@
+package gauntlet;
+
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+// Runs a batch of scripts on worker JVMs, so no single heap or collector has to hold all of them.
+//
+// Each worker is a child process speaking the server's framing over its stdin and stdout. Scripts
+// are dealt round-robin into one deque per worker; a worker takes from the front of its own deque
+// and, once that is empty, steals from the back of the fullest one. A worker that dies is replaced
+// and its script retried once. Output is replayed in script order as soon as each prefix is done.
+class Coordinator {
+    private static final int MAX_ATTEMPTS = 2;
+    // Reported for a script that failed outside the interpreter's own error handling, or that kept
+    // killing its worker.
+    private static final int CRASH_EXIT_CODE = 70;
+    // JVM options that claim a port or a file; every worker reusing them would collide.
+    private static final List<String> EXCLUSIVE_OPTIONS = List.of(
+            "-agentlib:jdwp", "-Xrunjdwp", "-XX:StartFlightRecording", "-XX:FlightRecorderOptions");
+
+    private record Result(List<Protocol.Frame> frames, int exitCode) {
+    }
+
+    private final List<Path> scripts;
+    private final List<Deque<Integer>> queues = new ArrayList<>();
+    private final List<CompletableFuture<Result>> results = new ArrayList<>();
+
+    private Coordinator(int workers, List<Path> scripts) {
+        this.scripts = scripts;
+        for (int i = 0; i < workers; i++) queues.add(new ConcurrentLinkedDeque<>());
+        for (int i = 0; i < scripts.size(); i++) {
+            queues.get(i % workers).add(i);
+            results.add(new CompletableFuture<>());
+        }
+    }
+
+    // Returns the first non-zero exit code in script order, or 0.
+    static int run(int workers, List<Path> scripts) {
+        return new Coordinator(Math.max(1, Math.min(workers, scripts.size())), scripts).run();
+    }
+
+    private int run() {
+        for (int i = 0; i < queues.size(); i++) {
+            int index = i;
+            Thread.ofPlatform().name("gauntlet-coordinator-" + i).start(() -> drive(index));
+        }
+
+        int code = 0;
+        for (CompletableFuture<Result> pending : results) {
+            Result result = pending.join();
+            for (Protocol.Frame frame : result.frames()) {
+                PrintStream stream = frame.kind() == Protocol.STDERR ? System.err : System.out;
+                stream.write(frame.payload(), 0, frame.payload().length);
+            }
+            System.out.flush();
+            System.err.flush();
+            if (code == 0) code = result.exitCode();
+        }
+        return code;
+    }
+
+    // Feeds one worker process until there is nothing left to take or steal.
+    private void drive(int index) {
+        Worker worker = null;
+        try {
+            for (Integer next = take(index); next != null; next = take(index)) {
+                Path script = scripts.get(next);
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        if (worker == null) worker = new Worker();
+                        results.get(next).complete(worker.run(script));
+                        break;
+                    } catch (IOException e) {
+                        if (worker != null) worker.kill();
+                        worker = null;
+                        if (attempt < MAX_ATTEMPTS) {
+                            System.err.println("Worker " + index + " failed on " + script + " (" + e.getMessage() + "); restarting.");
+                        } else {
+                            results.get(next).complete(crashed(script, e));
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // Nothing may be left waiting on a result this thread would have produced.
+            for (CompletableFuture<Result> result : results) result.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (worker != null) worker.close();
+        }
+    }
+
+    private Integer take(int index) {
+        Integer own = queues.get(index).pollFirst();
+        if (own != null) return own;
+
+        for (; ; ) {
+            Deque<Integer> victim = null;
+            for (Deque<Integer> queue : queues) {
+                if (!queue.isEmpty() && (victim == null || queue.size() > victim.size())) victim = queue;
+            }
+            if (victim == null) return null;
+            Integer stolen = victim.pollLast();
+            if (stolen != null) return stolen;
+        }
+    }
+
+    private static Result crashed(Path script, IOException e) {
+        String message = "Worker crashed running " + script + ": " + e.getMessage() + "\n";
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        return new Result(List.of(new Protocol.Frame(Protocol.STDERR, payload)), CRASH_EXIT_CODE);
+    }
+
+    // A child JVM started with this JVM's options, less the exclusive ones, and class path in --worker mode.
+    private static final class Worker {
+        private final Process process;
+        private final Protocol.Writer writer;
+        private final ReadableByteChannel in;
+
+        Worker() throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (!isExclusive(option)) command.add(option);
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Gauntlet.class.getName());
+            command.add("--worker");
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            writer = new Protocol.Writer(Channels.newChannel(process.getOutputStream()));
+            in = Channels.newChannel(process.getInputStream());
+        }
+
+        private static boolean isExclusive(String option) {
+            if (option.startsWith("-Xlog") && option.contains("file=")) return true;
+            for (String exclusive : EXCLUSIVE_OPTIONS) {
+                if (option.startsWith(exclusive)) return true;
+            }
+            return false;
+        }
+
+        Result run(Path script) throws IOException {
+            writer.write(Protocol.SCRIPT, script.toString().getBytes(StandardCharsets.UTF_8));
+            process.getOutputStream().flush();
+
+            List<Protocol.Frame> frames = new ArrayList<>();
+            for (; ; ) {
+                Protocol.Frame frame = Protocol.read(in);
+                if (frame == null) throw new EOFException("worker exited");
+                if (frame.kind() == Protocol.EXIT) return new Result(frames, frame.exitCode());
+                frames.add(frame);
+            }
+        }
+
+        // Closing stdin tells the worker to exit.
+        void close() {
+            try {
+                process.getOutputStream().close();
+                process.waitFor();
+            } catch (IOException e) {
+                kill();
+            } catch (InterruptedException e) {
+                kill();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+
+    // Worker side: runs each script named on stdin in a fresh session and answers on stdout.
+    static void work() throws IOException {
+        ReadableByteChannel in = new FileInputStream(FileDescriptor.in).getChannel();
+        Protocol.Writer writer = new Protocol.Writer(new FileOutputStream(FileDescriptor.out).getChannel());
+        // stdout carries frames now; stray prints go to stderr instead of corrupting them.
+        System.setOut(System.err);
+
+        for (Protocol.Frame request = Protocol.read(in); request != null; request = Protocol.read(in)) {
+            if (request.kind() != Protocol.SCRIPT) throw new IOException("Unexpected frame kind " + request.kind() + ".");
+            Path script = Path.of(new String(request.payload(), StandardCharsets.UTF_8));
+            PrintStream err = Server.stream(writer, Protocol.STDERR);
+            int code;
+            try {
+                code = Gauntlet.run(script, Server.stream(writer, Protocol.STDOUT), err);
+            } catch (RuntimeException | StackOverflowError e) {
+                // The script failed, not the worker: report it and keep serving.
+                err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+                err.flush();
+                code = CRASH_EXIT_CODE;
+            }
+            writer.exit(code);
+        }
+    }
+}
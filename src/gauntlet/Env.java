@@ -1,24 +1,57 @@
 package gauntlet;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 class Env {
-    public static final Map<String, Object> values = new HashMap<>();
+    // Past this many frozen layers, fork() squashes them so lookups stay short.
+    private static final int MAX_DEPTH = 8;
+    private static final Object MISSING = new Object();
+
+    // Bindings frozen by fork() and shared read-only by every env forked from them.
+    private record Layer(Map<String, Object> values, Layer parent, int depth) {
+    }
+
+    private Layer base;
+    private Map<String, Object> values = new HashMap<>();
+
+    Env() {
+        this(null);
+    }
+
+    private Env(Layer base) {
+        this.base = base;
+    }
+
+    // O(1): the current bindings become a frozen layer that this env and the fork both sit on.
+    // Each side then writes into its own map, so they can run on different threads without locks.
+    // Forking an env that nobody writes to any more only reads it, so that is safe from any thread.
+    Env fork() {
+        if (!values.isEmpty()) {
+            base = base != null && base.depth() >= MAX_DEPTH
+                    ? new Layer(flatten(), null, 0)
+                    : new Layer(values, base, base == null ? 0 : base.depth() + 1);
+            values = new HashMap<>();
+        }
+        return new Env(base);
+    }
 
     void define(String name, Object value) {
         values.put(name, value);
     }
 
     Object get(Token name) {
-        if (values.containsKey(name.lexeme())) {
-            return values.get(name.lexeme());
-        }
+        Object value = lookup(name.lexeme());
+        if (value != MISSING) return value;
         throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'.");
     }
 
     void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme())) {
+        // Writes to a frozen binding shadow it locally instead of touching the shared layer.
+        if (lookup(name.lexeme()) != MISSING) {
             values.put(name.lexeme(), value);
             return;
         }
@@ -26,4 +59,35 @@ class Env {
         throw new RuntimeError(name,
                 "Undefined variable '" + name.lexeme() + "'.");
     }
+
+    private Object lookup(String name) {
+        Object value = values.getOrDefault(name, MISSING);
+        for (Layer layer = base; value == MISSING && layer != null; layer = layer.parent()) {
+            value = layer.values().getOrDefault(name, MISSING);
+        }
+        if (value == MISSING && Builtins.ALL.containsKey(name)) value = Builtins.ALL.get(name);
+        return value;
+    }
+
+    int size() {
+        return base == null ? values.size() : flatten().size();
+    }
+
+    void forEach(BiConsumer<String, Object> action) {
+        if (base == null) {
+            values.forEach(action);
+        } else {
+            flatten().forEach(action);
+        }
+    }
+
+    private Map<String, Object> flatten() {
+        Deque<Map<String, Object>> layers = new ArrayDeque<>();
+        for (Layer layer = base; layer != null; layer = layer.parent()) layers.push(layer.values());
+
+        Map<String, Object> merged = new HashMap<>();
+        for (Map<String, Object> layer : layers) merged.putAll(layer);
+        merged.putAll(values);
+        return merged;
+    }
 }
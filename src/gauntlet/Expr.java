@@ -2,95 +2,32 @@ package gauntlet;
 
 import java.util.List;
 
-abstract class Expr {
- interface Visitor<R> {
- R visitAssignExpr(Assign expr);
- R visitBinaryExpr(Binary expr);
- R visitGroupingExpr(Grouping expr);
- R visitLiteralExpr(Literal expr);
- R visitUnaryExpr(Unary expr);
- R visitVariableExpr(Variable expr);
- }
- static class Assign extends Expr {
-    Assign(Token name, Expr value) {
-      this.name = name;
-      this.value = value;
-    }
-
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitAssignExpr(this);
-    }
+sealed interface Expr {
 
-    final Token name;
-    final Expr value;
-  }
- static class Binary extends Expr {
-    Binary(Expr left, Token operator, Expr right) {
-      this.left = left;
-      this.operator = operator;
-      this.right = right;
+    record Assign(Token name, Expr value, Binding binding) implements Expr {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitBinaryExpr(this);
+    record Binary(Expr left, Token operator, Expr right) implements Expr {
     }
 
-    final Expr left;
-    final Token operator;
-    final Expr right;
-  }
- static class Grouping extends Expr {
-    Grouping(Expr expression) {
-      this.expression = expression;
+    record Call(Expr callee, Token paren, List<Expr> arguments) implements Expr {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitGroupingExpr(this);
+    record Get(Expr object, Token name, PropertyCache cache) implements Expr {
     }
 
-    final Expr expression;
-  }
- static class Literal extends Expr {
-    Literal(Object value) {
-      this.value = value;
+    record Grouping(Expr expression) implements Expr {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitLiteralExpr(this);
+    record Literal(Object value, Token token) implements Expr {
     }
 
-    final Object value;
-  }
- static class Unary extends Expr {
-    Unary(Token operator, Expr right) {
-      this.operator = operator;
-      this.right = right;
+    record Set(Expr object, Token name, Expr value, PropertyCache cache) implements Expr {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitUnaryExpr(this);
+    record Unary(Token operator, Expr right) implements Expr {
     }
 
-    final Token operator;
-    final Expr right;
-  }
- static class Variable extends Expr {
-    Variable(Token name) {
-      this.name = name;
+    record Variable(Token name, Binding binding) implements Expr {
     }
-
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitVariableExpr(this);
-    }
-
-    final Token name;
-  }
-
- abstract <R> R accept(Visitor<R> visitor);
 }
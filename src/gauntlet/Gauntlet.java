@@ -3,26 +3,80 @@ package gauntlet;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 class Gauntlet {
-    private static boolean hasError = false;
-    private static boolean hadRuntimeError = false;
+    private static final ThreadLocal<Session> session =
+            ThreadLocal.withInitial(() -> new Session(System.out, System.err));
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: gauntlet [script]");
-            System.exit(64);
+        Metrics.install();
+        Allocations.install();
+        if (args.length >= 1 && args[0].equals("--server")) {
+            if (args.length > 3) usage();
+            Env prelude = new Env();
+            if (args.length == 3) restore(Path.of(args[2]), prelude);
+            Server.serve(args.length >= 2 ? Path.of(args[1]) : Server.DEFAULT_SOCKET, prelude);
+        } else if (args.length >= 1 && args[0].equals("--client")) {
+            if (args.length < 2 || args.length > 3) usage();
+            System.exit(Client.run(Path.of(args[1]), args.length == 3 ? Path.of(args[2]) : Server.DEFAULT_SOCKET));
+        } else if (args.length >= 1 && args[0].equals("--coordinate")) {
+            if (args.length < 3) usage();
+            int workers = positive(args[1]);
+            List<Path> scripts = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) scripts.add(Path.of(args[i]));
+            int code = Coordinator.run(workers, scripts);
+            if (code != 0) System.exit(code);
+        } else if (args.length == 1 && args[0].equals("--worker")) {
+            Coordinator.work();
+        } else if (args.length >= 1 && args[0].equals("--pipeline")) {
+            if (args.length != 2) usage();
+            runFile(args[1], true);
+        } else if (args.length >= 1 && args[0].equals("--snapshot")) {
+            if (args.length != 3) usage();
+            snapshot(args[1], Path.of(args[2]));
+        } else if (args.length >= 1 && args[0].equals("--restore")) {
+            if (args.length != 3) usage();
+            restore(Path.of(args[1]), session.get().interpreter.globals());
+            runFile(args[2], false);
+        } else if (args.length > 1) {
+            usage();
         } else {
             if (args.length == 1) {
-                runFile(args[0]);
+                runFile(args[0], false);
             } else runPrompt();
         }
     }
 
+    private static void usage() {
+        System.out.println("Usage: gauntlet [script]");
+        System.out.println("       gauntlet --pipeline script");
+        System.out.println("       gauntlet --coordinate workers script...");
+        System.out.println("       gauntlet --server [socket [snapshot]]");
+        System.out.println("       gauntlet --client script [socket]");
+        System.out.println("       gauntlet --snapshot prelude snapshot");
+        System.out.println("       gauntlet --restore snapshot script");
+        System.exit(64);
+    }
+
+    // Anything but a positive integer is a usage error.
+    private static int positive(String arg) {
+        try {
+            int value = Integer.parseInt(arg);
+            if (value > 0) return value;
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        usage();
+        return 0;
+    }
+
     private static void runPrompt() throws IOException {
         InputStreamReader inputStreamReader = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(inputStreamReader);
@@ -32,27 +86,126 @@ class Gauntlet {
             String line = reader.readLine();
             assert line != null : "The input should not be null.";
             run(line);
-            hasError = false;
+            session.get().hasError = false;
         }
     }
 
-    private static void runFile(String arg) throws IOException {
+    private static void runFile(String arg, boolean pipelined) throws IOException {
         byte[] bytes = Files.readAllBytes(Paths.get(arg));
-        run(new String(bytes, StandardCharsets.UTF_8));  // Explicit UTF-8 encoding
+        String src = new String(bytes, StandardCharsets.UTF_8);  // Explicit UTF-8 encoding
+        session.get().interpreter.enter(Paths.get(arg));
+        if (pipelined) {
+            Pipeline.run(src, session.get());
+        } else run(src);
+
+        int code = session.get().exitCode();
+        if (code != 0) System.exit(code);
+    }
+
+    private static void snapshot(String prelude, Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(prelude));
+        session.get().interpreter.enter(Paths.get(prelude));
+        run(new String(bytes, StandardCharsets.UTF_8));
+
+        int code = session.get().exitCode();
+        if (code != 0) System.exit(code);
+        try {
+            Snapshot.write(session.get().interpreter.globals(), file);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(74);
+        }
+    }
+
+    private static void restore(Path file, Env globals) {
+        try {
+            Snapshot.read(file, globals);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(65);
+        }
+    }
+
+    // Runs a script in a fresh session bound to the calling thread and returns its exit code.
+    static int run(String src, PrintStream out, PrintStream err) {
+        return run(src, new Env(), out, err);
+    }
+
+    // Same, on top of existing globals; pass a fork to keep the original untouched.
+    static int run(String src, Env globals, PrintStream out, PrintStream err) {
+        return run(new Session(out, err, globals), src);
+    }
+
+    // Runs a script file in a fresh session, with its imports resolved next to it.
+    static int run(Path script, PrintStream out, PrintStream err) {
+        String src;
+        try {
+            src = Files.readString(script, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            err.println("Cannot read script '" + script + "'.");
+            err.flush();
+            return 66;
+        }
+        return run(script, src, new Env(), out, err);
+    }
 
-        if (hasError) System.exit(65);
+    // Same, for source read elsewhere (a server request), on top of existing globals.
+    static int run(Path script, String src, Env globals, PrintStream out, PrintStream err) {
+        Session isolated = new Session(out, err, globals);
+        isolated.interpreter.enter(script);
+        return run(isolated, src);
+    }
+
+    private static int run(Session isolated, String src) {
+        session.set(isolated);
+        try {
+            run(src);
+        } finally {
+            session.remove();
+            isolated.out.flush();
+            isolated.err.flush();
+        }
+        return isolated.exitCode();
+    }
+
+    // Binds an existing session to the calling thread while action runs, then puts back the
+    // session the thread had before.
+    static void runIn(Session bound, Runnable action) {
+        Session previous = session.get();
+        session.set(bound);
+        try {
+            action.run();
+        } finally {
+            session.set(previous);
+        }
     }
 
     private static void run(String src) {
+        Metrics.PhaseEvent scan = Metrics.begin(Metrics.Phase.SCAN);
         Scanner scanner = new Scanner(src);
         List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
+        Metrics.end(scan, Metrics.Phase.SCAN, tokens.size());
+
+        Metrics.PhaseEvent parse = Metrics.begin(Metrics.Phase.PARSE);
+        Parser parser = new Parser(src, tokens);
         List<Stmt> stmts = parser.parse();
-        Interpreter interpreter = new Interpreter();
+        new Resolver().resolve(stmts);
+        Metrics.end(parse, Metrics.Phase.PARSE, stmts.size());
+
+        Interpreter interpreter = session.get().interpreter;
+        // Imported files are syntax checked along with this one, before anything runs.
+        String moduleErrors = ModuleLoader.loadAll(interpreter.directory(), stmts);
+        if (!moduleErrors.isEmpty()) {
+            session.get().err.print(moduleErrors);
+            session.get().hasError = true;
+        }
         // Stop if there was a syntax error.
-        if (hasError) return;
+        if (session.get().hasError) return;
+        if (Optimizer.ENABLED) stmts = new Optimizer().optimize(stmts);
 
+        Metrics.PhaseEvent execute = Metrics.begin(Metrics.Phase.EXECUTE);
         interpreter.interpret(stmts);
+        Metrics.end(execute, Metrics.Phase.EXECUTE, stmts.size());
     }
 
     // Error Handler
@@ -61,12 +214,16 @@ class Gauntlet {
     }
 
     static void report(int line, String context, String message) {
-        System.err.println("Error on line: " + line + ". \n        " + context + " : " + message);
-        hasError = true;
+        Session current = session.get();
+        current.err.println("Error on line: " + line + ". \n        " + context + " : " + message);
+        current.hasError = true;
+        Metrics.syntaxError();
     }
     static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() +
+        Session current = session.get();
+        current.err.println(error.getMessage() +
                 "\n[line " + error.token.line() + "]");
-        hadRuntimeError = true;
+        current.hadRuntimeError = true;
+        Metrics.runtimeError(error);
     }
 }
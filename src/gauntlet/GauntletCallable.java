@@ -0,0 +1,11 @@
+package gauntlet;
+
+import java.util.List;
+
+interface GauntletCallable {
+    int arity();
+
+    // Natives report bad arguments with IllegalArgumentException; the interpreter turns that
+    // into a runtime error at the call site.
+    Object call(Interpreter interpreter, List<Object> arguments);
+}
@@ -0,0 +1,28 @@
+package gauntlet;
+
+import java.util.List;
+
+class GauntletClass implements GauntletCallable {
+    final String name;
+    // Every instance starts here, so instances of different classes never share a shape.
+    final Shape root = Shape.root();
+
+    GauntletClass(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public int arity() {
+        return 0;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return new GauntletInstance(this);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,41 @@
+package gauntlet;
+
+import java.nio.file.Path;
+import java.util.List;
+
+class GauntletFunction implements GauntletCallable {
+    final Stmt.Function declaration;
+    // Flat closure: the captured cells themselves, not a chain of enclosing environments.
+    final Cell[] upvalues;
+    // The file it was declared in, or null; its body runs as part of that file.
+    final Path script;
+
+    GauntletFunction(Stmt.Function declaration, Cell[] upvalues, Path script) {
+        this.declaration = declaration;
+        this.upvalues = upvalues;
+        this.script = script;
+    }
+
+    @Override
+    public int arity() {
+        return declaration.params().size();
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        Object[] frame = newFrame();
+        for (int i = 0; i < arguments.size(); i++) frame[i] = arguments.get(i);
+        return interpreter.invoke(this, frame);
+    }
+
+    // Parses a pre-parsed body first, since that is what sizes the frame.
+    Object[] newFrame() {
+        declaration.body().statements();
+        return new Object[declaration.layout().frameSize];
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + declaration.name().lexeme() + ">";
+    }
+}
@@ -0,0 +1,31 @@
+package gauntlet;
+
+import java.util.Arrays;
+
+// Fields live in a flat slot array laid out by the instance's shape instead of a per-instance map.
+class GauntletInstance {
+    private static final Object[] NO_SLOTS = new Object[0];
+
+    final GauntletClass klass;
+    Shape shape;
+    Object[] slots = NO_SLOTS;
+
+    GauntletInstance(GauntletClass klass) {
+        this.klass = klass;
+        this.shape = klass.root;
+    }
+
+    // Stores value in slot index, moving to shape first when the write adds a field.
+    void write(Shape next, int index, Object value) {
+        if (next != shape) {
+            shape = next;
+            if (index >= slots.length) slots = Arrays.copyOf(slots, Math.max(4, slots.length * 2));
+        }
+        slots[index] = value;
+    }
+
+    @Override
+    public String toString() {
+        return klass.name + " instance";
+    }
+}
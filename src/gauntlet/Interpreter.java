@@ -1,22 +1,120 @@
 package gauntlet;
 
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
-    private Env env = new Env();
+public class Interpreter {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
 
-    @Override
-    public Object visitAssignExpr(Expr.Assign expr) {
-        Object value = evaluate(expr.value);
-        env.assign(expr.name, value);
+    private final Env env;
+    private final PrintStream out;
+    // The file being executed, or null for source without one. Imports resolve against its
+    // directory; each module runs once.
+    private Path script;
+    private final Set<Path> imported = new HashSet<>();
+    // The running function's frame and captured cells; null in global code.
+    private Object[] frame;
+    private Cell[] upvalues;
+    // Set by a return statement while execute() unwinds back to invoke().
+    private Object returnValue;
+    // Reused by print for each line it writes, and encoded from these straight into out.
+    private final StringBuilder line = new StringBuilder();
+    private final CharsetEncoder encoder;
+    private CharBuffer lineChars = CharBuffer.allocate(256);
+    private ByteBuffer lineBytes = ByteBuffer.allocate(1024);
+
+    Interpreter(PrintStream out, Env env) {
+        this.out = out;
+        this.env = env;
+        // Same replacement for unencodable chars as PrintStream's own writer.
+        this.encoder = out.charset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    Env globals() {
+        return env;
+    }
+
+    Path directory() {
+        return script == null ? Path.of("") : script.getParent();
+    }
+
+    // Marks script as the file being run, so imports resolve next to it and cannot re-run it.
+    void enter(Path script) {
+        Path key = ModuleLoader.key(script);
+        this.script = key;
+        imported.add(key);
+    }
+
+    private Object evaluate(Expr expr) {
+        if (!Allocations.ENABLED) return evaluateNode(expr);
+        Allocations.Tracker tracker = Allocations.enter(expr, script);
+        try {
+            return evaluateNode(expr);
+        } finally {
+            tracker.exit();
+        }
+    }
+
+    private Object evaluateNode(Expr expr) {
+        return switch (expr) {
+            case Expr.Assign assign -> assign(assign);
+            case Expr.Binary binary -> binary(binary);
+            case Expr.Call call -> call(call);
+            case Expr.Get get -> get(get);
+            case Expr.Grouping grouping -> evaluate(grouping.expression());
+            case Expr.Literal literal -> literal.value();
+            case Expr.Set set -> set(set);
+            case Expr.Unary unary -> unary(unary);
+            case Expr.Variable variable -> lookup(variable.name(), variable.binding());
+        };
+    }
+
+    private Object lookup(Token name, Binding binding) {
+        return switch (binding.kind) {
+            case GLOBAL -> env.get(name);
+            case LOCAL -> frame[binding.index];
+            case CELL -> ((Cell) frame[binding.index]).value;
+            case UPVALUE -> upvalues[binding.index].value;
+        };
+    }
+
+    private void store(Token name, Binding binding, Object value) {
+        switch (binding.kind) {
+            case GLOBAL -> env.assign(name, value);
+            case LOCAL -> frame[binding.index] = value;
+            case CELL -> ((Cell) frame[binding.index]).value = value;
+            case UPVALUE -> upvalues[binding.index].value = value;
+        }
+    }
+
+    private void declare(Token name, Binding binding, Object value) {
+        switch (binding.kind) {
+            case GLOBAL -> env.define(name.lexeme(), value);
+            case CELL -> frame[binding.index] = new Cell(value);
+            default -> frame[binding.index] = value;
+        }
+    }
+
+    private Object assign(Expr.Assign expr) {
+        Object value = evaluate(expr.value());
+        store(expr.name(), expr.binding(), value);
         return value;
     }
 
-    @Override
-    public Object visitBinaryExpr(Expr.Binary expr) {
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
-        switch (expr.operator.type()) {
+    private Object binary(Expr.Binary expr) {
+        Object left = evaluate(expr.left());
+        Object right = evaluate(expr.right());
+        switch (expr.operator().type()) {
             case BANG_EQUAL -> {
                 return !isEqual(left, right);
             }
@@ -27,7 +125,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
                 return (double) left > (double) right;
             }
             case GREATER_EQUAL -> {
-                return (double) left > +(double) right;
+                return (double) left >= (double) right;
             }
             case LESS -> {
                 return (double) left < (double) right;
@@ -59,27 +157,125 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
         return null;
     }
 
-    private boolean isEqual(Object left, Object right) {
-        if (left == null && right == null) return true;
-        if (left == null) return false;
-        return left.equals(right);
+    private Object call(Expr.Call expr) {
+        Object callee = evaluate(expr.callee());
+
+        // Script functions take their arguments straight into the new frame.
+        if (callee instanceof GauntletFunction
+                && ((GauntletFunction) callee).arity() == expr.arguments().size()) {
+            GauntletFunction function = (GauntletFunction) callee;
+            List<Expr> arguments = expr.arguments();
+            Object[] frame = function.newFrame();
+            for (int i = 0; i < arguments.size(); i++) {
+                frame[i] = evaluate(arguments.get(i));
+            }
+            try {
+                return invoke(function, frame);
+            } catch (StackOverflowError e) {
+                throw stackOverflow(expr);
+            }
+        }
+
+        List<Object> arguments = new ArrayList<>(expr.arguments().size());
+        for (Expr argument : expr.arguments()) {
+            arguments.add(evaluate(argument));
+        }
+
+        if (!(callee instanceof GauntletCallable)) {
+            throw new RuntimeError(expr.paren(), "Can only call functions and classes.");
+        }
+
+        GauntletCallable function = (GauntletCallable) callee;
+        if (arguments.size() != function.arity()) {
+            throw new RuntimeError(expr.paren(), "Expected " +
+                    function.arity() + " arguments but got " +
+                    arguments.size() + ".");
+        }
+
+        try {
+            return function.call(this, arguments);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeError(expr.paren(), e.getMessage());
+        } catch (StackOverflowError e) {
+            throw stackOverflow(expr);
+        }
     }
 
-    @Override
-    public Object visitGroupingExpr(Expr.Grouping expr) {
-        return evaluate(expr);
+    // Reported at the innermost call that still has room to build the error; the callers above
+    // it only see a RuntimeError unwinding.
+    private static RuntimeError stackOverflow(Expr.Call expr) {
+        return new RuntimeError(expr.paren(), "Stack overflow.");
     }
 
-    @Override
-    public Object visitLiteralExpr(Expr.Literal expr) {
-        return expr.value;
+    // Runs a function body in frame, whose leading slots already hold the arguments.
+    Object invoke(GauntletFunction function, Object[] frame) {
+        Stmt.Function declaration = function.declaration;
+        for (int slot : declaration.layout().cellParams) {
+            frame[slot] = new Cell(frame[slot]);
+        }
+
+        Object[] callerFrame = this.frame;
+        Cell[] callerUpvalues = this.upvalues;
+        Path callerScript = this.script;
+        this.frame = frame;
+        this.upvalues = function.upvalues;
+        this.script = function.script;
+        try {
+            for (Stmt statement : declaration.body().statements()) {
+                if (execute(statement)) {
+                    Object value = returnValue;
+                    returnValue = null;
+                    return value;
+                }
+            }
+            return null;
+        } finally {
+            this.frame = callerFrame;
+            this.upvalues = callerUpvalues;
+            this.script = callerScript;
+        }
+    }
+
+    private GauntletFunction closure(Stmt.Function declaration) {
+        Layout.Capture[] captures = declaration.layout().captures;
+        Cell[] cells = new Cell[captures.length];
+        for (int i = 0; i < captures.length; i++) {
+            Layout.Capture capture = captures[i];
+            cells[i] = capture.fromFrame() ? (Cell) frame[capture.index()] : upvalues[capture.index()];
+        }
+        return new GauntletFunction(declaration, cells, script);
     }
 
-    @Override
-    public Object visitUnaryExpr(Expr.Unary expr) {
-        Object right = evaluate(expr.right);
+    private Object get(Expr.Get expr) {
+        Object object = evaluate(expr.object());
+        if (object instanceof GauntletInstance) {
+            return expr.cache().get((GauntletInstance) object, expr.name());
+        }
 
-        switch (expr.operator.type()) {
+        throw new RuntimeError(expr.name(), "Only instances have properties.");
+    }
+
+    private Object set(Expr.Set expr) {
+        Object object = evaluate(expr.object());
+        if (!(object instanceof GauntletInstance)) {
+            throw new RuntimeError(expr.name(), "Only instances have fields.");
+        }
+
+        Object value = evaluate(expr.value());
+        expr.cache().set((GauntletInstance) object, expr.name(), value);
+        return value;
+    }
+
+    private boolean isEqual(Object left, Object right) {
+        if (left == null && right == null) return true;
+        if (left == null) return false;
+        return left.equals(right);
+    }
+
+    private Object unary(Expr.Unary expr) {
+        Object right = evaluate(expr.right());
+
+        switch (expr.operator().type()) {
             case MINUS -> {
                 return -(double) right;
             }
@@ -91,43 +287,104 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
         return null;
     }
 
-    @Override
-    public Object visitVariableExpr(Expr.Variable expr) {
-        return env.get(expr.name);
-    }
-
     private boolean isTruthy(Object object) {
         if (object == null) return false;
         if (object instanceof Boolean) return (boolean) object;
         return true;
     }
 
-    private Object evaluate(Expr expr) {
-        return expr.accept(this);
+    // Returns true when a return statement ran; the value is left in returnValue.
+    private boolean execute(Stmt stmt) {
+        if (!Allocations.ENABLED) return executeNode(stmt);
+        Allocations.Tracker tracker = Allocations.enter(stmt, script);
+        try {
+            return executeNode(stmt);
+        } finally {
+            tracker.exit();
+        }
     }
 
-    @Override
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
-        evaluate(stmt.expression);
-        return null;
+    private boolean executeNode(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Block block -> {
+                return block(block);
+            }
+            case Stmt.Class klass -> declare(klass.name(), klass.binding(), new GauntletClass(klass.name().lexeme()));
+            case Stmt.Expression expression -> evaluate(expression.expression());
+            case Stmt.Function function -> {
+                // Declared first so a captured name already has its cell when the closure is built.
+                declare(function.name(), function.binding(), null);
+                store(function.name(), function.binding(), closure(function));
+            }
+            case Stmt.If anIf -> {
+                if (isTruthy(evaluate(anIf.condition()))) {
+                    return execute(anIf.thenBranch());
+                } else if (anIf.elseBranch() != null) {
+                    return execute(anIf.elseBranch());
+                }
+            }
+            case Stmt.Import anImport -> importModule(anImport);
+            case Stmt.Print print -> {
+                Object value = evaluate(print.expression());
+                line.setLength(0);
+                stringify(line, value);
+                printLine();
+            }
+            case Stmt.Return aReturn -> {
+                returnValue = aReturn.value() == null ? null : evaluate(aReturn.value());
+                return true;
+            }
+            case Stmt.Var var -> {
+                Object value = null;
+                if (var.initializer() != null) {
+                    value = evaluate(var.initializer());
+                }
+
+                declare(var.name(), var.binding(), value);
+            }
+        }
+        return false;
     }
 
-    @Override
-    public Void visitPrintStmt(Stmt.Print stmt) {
-        Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
-        return null;
+    private boolean block(Stmt.Block block) {
+        List<Stmt> statements = block.body().statements();
+        // Blocks inside a function share its frame; a block in global code gets one of its own.
+        if (block.layout().frameSize < 0) {
+            return executeAll(statements);
+        }
+
+        Object[] enclosing = frame;
+        frame = new Object[block.layout().frameSize];
+        try {
+            return executeAll(statements);
+        } finally {
+            frame = enclosing;
+        }
     }
 
-    @Override
-    public Void visitVarStmt(Stmt.Var stmt) {
-        Object value = null;
-        if (stmt.initializer != null) {
-            value = evaluate(stmt.initializer);
+    private boolean executeAll(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (execute(statement)) return true;
         }
+        return false;
+    }
 
-        env.define(stmt.name.lexeme(), value);
-        return null;
+    private void importModule(Stmt.Import stmt) {
+        ScriptModule module = ModuleLoader.require(directory().resolve((String) stmt.path().litteral()));
+        if (!module.errors().isEmpty()) {
+            throw new RuntimeError(stmt.path(), module.errors().stripTrailing());
+        }
+        if (!imported.add(module.path())) return;
+
+        Path importer = script;
+        script = module.path();
+        try {
+            for (Stmt statement : module.statements()) {
+                execute(statement);
+            }
+        } finally {
+            script = importer;
+        }
     }
 
     void interpret(List<Stmt> statements) {
@@ -140,23 +397,50 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Object> {
         }
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    // Executes one top-level statement; returns false once a runtime error has stopped the script.
+    boolean interpret(Stmt statement) {
+        try {
+            execute(statement);
+            return true;
+        } catch (RuntimeError error) {
+            Gauntlet.runtimeError(error);
+            return false;
+        }
     }
 
-    private String stringify(Object object) {
-        if (object == null) return "nil";
+    // println(line) without the String it would make: the chars are encoded into a reused buffer.
+    private void printLine() {
+        line.append(LINE_SEPARATOR);
+        int length = line.length();
+        if (lineChars.capacity() < length) lineChars = CharBuffer.allocate(Math.max(length, lineChars.capacity() * 2));
+        line.getChars(0, length, lineChars.array(), 0);
+        lineChars.clear().limit(length);
+
+        int maxBytes = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+        if (lineBytes.capacity() < maxBytes) lineBytes = ByteBuffer.allocate(Math.max(maxBytes, lineBytes.capacity() * 2));
+        lineBytes.clear();
+        encoder.reset();
+        encoder.encode(lineChars, lineBytes, true);
+        encoder.flush(lineBytes);
+        out.write(lineBytes.array(), 0, lineBytes.position());
+    }
 
-        if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
+    // Appends the printed form of object to text; numbers are formatted in place, not via Strings.
+    private void stringify(StringBuilder text, Object object) {
+        if (object == null) {
+            text.append("nil");
+        } else if (object instanceof Double) {
+            Numbers.append(text, (double) object);
+        } else if (object instanceof NumArray) {
+            double[] values = ((NumArray) object).values;
+            text.append('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) text.append(", ");
+                Numbers.append(text, values[i]);
             }
-            return text;
+            text.append(']');
+        } else {
+            text.append(object);
         }
-
-        return object.toString();
     }
-
-
 }
@@ -0,0 +1,80 @@
+package gauntlet;
+
+// Bulk numeric operations behind the array natives. Uses the Vector API when VectorKernels (from
+// src-vector) is on the class path and the JVM was started with --add-modules jdk.incubator.vector,
+// and plain loops otherwise. Both fuse multiply-add in dot, but the vector kernels sum lane by lane,
+// so sum and dot can differ from the loops in the last bits.
+interface Kernels {
+    Kernels INSTANCE = load();
+
+    double sum(double[] a);
+
+    double dot(double[] a, double[] b);
+
+    double min(double[] a);
+
+    double max(double[] a);
+
+    void add(double[] a, double[] b, double[] out);
+
+    void mul(double[] a, double[] b, double[] out);
+
+    void scale(double[] a, double k, double[] out);
+
+    // Loaded by name so src compiles without the incubator module.
+    private static Kernels load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernels) Class.forName("gauntlet.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Built without src-vector.
+            }
+        }
+        return new Scalar();
+    }
+
+    final class Scalar implements Kernels {
+        @Override
+        public double sum(double[] a) {
+            double sum = 0;
+            for (double v : a) sum += v;
+            return sum;
+        }
+
+        @Override
+        public double dot(double[] a, double[] b) {
+            double sum = 0;
+            for (int i = 0; i < a.length; i++) sum = Math.fma(a[i], b[i], sum);
+            return sum;
+        }
+
+        @Override
+        public double min(double[] a) {
+            double min = a[0];
+            for (double v : a) min = Math.min(min, v);
+            return min;
+        }
+
+        @Override
+        public double max(double[] a) {
+            double max = a[0];
+            for (double v : a) max = Math.max(max, v);
+            return max;
+        }
+
+        @Override
+        public void add(double[] a, double[] b, double[] out) {
+            for (int i = 0; i < a.length; i++) out[i] = a[i] + b[i];
+        }
+
+        @Override
+        public void mul(double[] a, double[] b, double[] out) {
+            for (int i = 0; i < a.length; i++) out[i] = a[i] * b[i];
+        }
+
+        @Override
+        public void scale(double[] a, double k, double[] out) {
+            for (int i = 0; i < a.length; i++) out[i] = a[i] * k;
+        }
+    }
+}
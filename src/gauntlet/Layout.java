@@ -0,0 +1,21 @@
+package gauntlet;
+
+import java.util.Map;
+
+// Frame layout for a function body or a top-level block, filled in by the Resolver.
+final class Layout {
+    // Where a closure gets each captured cell from when it is created.
+    record Capture(boolean fromFrame, int index) {
+    }
+
+    private static final Capture[] NO_CAPTURES = new Capture[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    // Slots in the frame, or -1 for a block that runs in its enclosing frame.
+    int frameSize = -1;
+    Capture[] captures = NO_CAPTURES;
+    // Parameter slots that closures capture, so the call boxes them into cells up front.
+    int[] cellParams = NO_SLOTS;
+    // For a lazily parsed function: the capture index of each name, for resolving its body later.
+    Map<String, Integer> captureNames;
+}
@@ -0,0 +1,161 @@
+package gauntlet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the scan, parse and execute phases.
+ * They are only collected, and only published over JMX, when the JVM runs with
+ * {@code -Dgauntlet.metrics=true}. The JFR events are independent of that flag and
+ * cost a disabled-event check when no recording is running.
+ */
+final class Metrics implements MetricsMBean {
+    static final boolean ENABLED = Boolean.getBoolean("gauntlet.metrics");
+
+    enum Phase {
+        SCAN("scan"), PARSE("parse"), EXECUTE("execute");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder syntaxErrors = new LongAdder();
+    private final LongAdder runtimeErrors = new LongAdder();
+    private final PhaseStats[] phases = new PhaseStats[Phase.values().length];
+
+    private Metrics() {
+        for (Phase phase : Phase.values()) phases[phase.ordinal()] = new PhaseStats();
+    }
+
+    // Registers the MBeans once; does nothing unless metrics are enabled.
+    static void install() {
+        if (!ENABLED) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("gauntlet:type=Interpreter");
+            if (server.isRegistered(name)) return;
+            server.registerMBean(new StandardMBean(INSTANCE, MetricsMBean.class), name);
+            for (Phase phase : Phase.values()) {
+                server.registerMBean(new StandardMBean(INSTANCE.phases[phase.ordinal()], PhaseStatsMBean.class),
+                        new ObjectName("gauntlet:type=Phase,name=" + phase.label));
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    static PhaseEvent begin(Phase phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase.label;
+        event.begin();
+        return event;
+    }
+
+    static void end(PhaseEvent event, Phase phase, long items) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.items = items;
+            event.commit();
+        }
+        if (Allocations.ENABLED) Allocations.phase(phase, event.startBytes);
+        if (ENABLED) {
+            INSTANCE.phases[phase.ordinal()].record(event.nanos());
+            switch (phase) {
+                case SCAN -> INSTANCE.tokens.add(items);
+                case PARSE -> INSTANCE.statements.add(items);
+                case EXECUTE -> INSTANCE.runs.increment();
+            }
+        }
+    }
+
+    static void syntaxError() {
+        if (ENABLED) INSTANCE.syntaxErrors.increment();
+    }
+
+    static void runtimeError(RuntimeError error) {
+        RuntimeErrorEvent event = new RuntimeErrorEvent();
+        if (event.shouldCommit()) {
+            event.message = error.getMessage();
+            event.line = error.token.line();
+            event.commit();
+        }
+        if (ENABLED) INSTANCE.runtimeErrors.increment();
+    }
+
+    @Override
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getSyntaxErrors() {
+        return syntaxErrors.sum();
+    }
+
+    @Override
+    public long getRuntimeErrors() {
+        return runtimeErrors.sum();
+    }
+
+    @Name("gauntlet.Phase")
+    @Label("Gauntlet Phase")
+    @Category("Gauntlet")
+    @Description("One scan, parse or execute phase of Gauntlet.run")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Items")
+        @Description("Tokens scanned, statements parsed or statements executed")
+        long items;
+
+        // JFR only times events while recording, so keep our own clock for the histograms.
+        private final transient long startNanos = ENABLED ? System.nanoTime() : 0;
+        private final transient long startBytes = Allocations.ENABLED ? Allocations.allocated() : 0;
+
+        long nanos() {
+            return System.nanoTime() - startNanos;
+        }
+    }
+
+    @Name("gauntlet.RuntimeError")
+    @Label("Gauntlet Runtime Error")
+    @Category("Gauntlet")
+    static class RuntimeErrorEvent extends Event {
+        @Label("Message")
+        String message;
+
+        @Label("Line")
+        int line;
+    }
+}
@@ -0,0 +1,13 @@
+package gauntlet;
+
+public interface MetricsMBean {
+    long getRuns();
+
+    long getTokens();
+
+    long getStatements();
+
+    long getSyntaxErrors();
+
+    long getRuntimeErrors();
+}
@@ -0,0 +1,127 @@
+package gauntlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Scans and parses imported files on a shared pool. Each file is compiled at most once per process,
+// however many scripts or sessions import it, and a module starts compiling its own imports as
+// soon as it has parsed, so independent branches of the graph load in parallel.
+final class ModuleLoader {
+    private static final ExecutorService POOL = Executors.newWorkStealingPool();
+    private static final ConcurrentMap<Path, CompletableFuture<ScriptModule>> CACHE = new ConcurrentHashMap<>();
+
+    private ModuleLoader() {
+    }
+
+    static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    // Starts loading everything statements import, relative to directory.
+    static void prefetch(Path directory, List<Stmt> statements) {
+        for (Path path : imports(directory, statements)) start(path);
+    }
+
+    // Waits for the whole graph under statements and returns the syntax errors of every module in it.
+    static String loadAll(Path directory, List<Stmt> statements) {
+        StringBuilder errors = new StringBuilder();
+        Set<Path> seen = new HashSet<>();
+        Deque<Path> pending = new ArrayDeque<>(imports(directory, statements));
+        while (!pending.isEmpty()) {
+            Path path = pending.poll();
+            if (!seen.add(path)) continue;
+
+            ScriptModule module = require(path);
+            errors.append(module.errors());
+            pending.addAll(imports(path.getParent(), module.statements()));
+        }
+        return errors.toString();
+    }
+
+    static ScriptModule require(Path path) {
+        return start(path).join();
+    }
+
+    private static CompletableFuture<ScriptModule> start(Path path) {
+        Path key = key(path);
+        CompletableFuture<ScriptModule> loading = CACHE.get(key);
+        if (loading != null) return loading;
+
+        CompletableFuture<ScriptModule> created = new CompletableFuture<>();
+        loading = CACHE.putIfAbsent(key, created);
+        if (loading != null) return loading;
+        POOL.execute(() -> {
+            try {
+                ScriptModule module = compile(key);
+                // Requests already waiting still see the failure; later ones read the file again.
+                if (!module.readable()) CACHE.remove(key, created);
+                created.complete(module);
+            } catch (Throwable e) {
+                CACHE.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    private static List<Path> imports(Path directory, List<Stmt> statements) {
+        List<Path> paths = new ArrayList<>();
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.Import) {
+                paths.add(key(directory.resolve((String) ((Stmt.Import) statement).path().litteral())));
+            }
+        }
+        return paths;
+    }
+
+    private static ScriptModule compile(Path path) {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Session collecting = new Session(new PrintStream(OutputStream.nullOutputStream()),
+                new PrintStream(errors, true, StandardCharsets.UTF_8));
+        List<List<Stmt>> parsed = new ArrayList<>(1);
+
+        Gauntlet.runIn(collecting, () -> {
+            String src;
+            try {
+                src = Files.readString(path, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                collecting.err.println("Cannot read module '" + path + "'.");
+                parsed.add(null);
+                return;
+            }
+
+            Metrics.PhaseEvent scan = Metrics.begin(Metrics.Phase.SCAN);
+            List<Token> tokens = new Scanner(src).scanTokens();
+            Metrics.end(scan, Metrics.Phase.SCAN, tokens.size());
+
+            Metrics.PhaseEvent parse = Metrics.begin(Metrics.Phase.PARSE);
+            List<Stmt> statements = new Parser(src, tokens).parse();
+            new Resolver().resolve(statements);
+            Metrics.end(parse, Metrics.Phase.PARSE, statements.size());
+            parsed.add(statements);
+        });
+
+        List<Stmt> statements = parsed.get(0) == null ? List.of() : parsed.get(0);
+        String text = errors.size() == 0 ? "" : "In module " + path + ":\n" + errors.toString(StandardCharsets.UTF_8);
+        if (text.isEmpty()) prefetch(path.getParent(), statements);
+        boolean readable = parsed.get(0) != null;
+        if (!text.isEmpty()) return new ScriptModule(path, List.of(), text, readable);
+        return new ScriptModule(path, Optimizer.ENABLED ? new Optimizer().optimize(statements) : statements, text, true);
+    }
+}
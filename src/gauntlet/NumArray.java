@@ -0,0 +1,10 @@
+package gauntlet;
+
+// Script-level array of numbers, stored unboxed so the bulk natives can run over it in one go.
+final class NumArray {
+    final double[] values;
+
+    NumArray(double[] values) {
+        this.values = values;
+    }
+}
@@ -0,0 +1,97 @@
+package gauntlet;
+
+// Number literal parsing and number printing without intermediate Strings. Both take a fast path
+// for the shapes scripts actually contain and otherwise defer to the JDK, so results always match
+// Double.parseDouble and Double.toString (less its trailing ".0") exactly.
+final class Numbers {
+    // Every power of ten up to 1e22 is an exact double.
+    private static final double[] POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long[] LONG_POWERS = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L
+    };
+    private static final long MAX_EXACT = 1L << 53;
+    // Double.toString switches to computerized scientific notation outside [1e-3, 1e7).
+    private static final double MIN_PLAIN = 1e-3;
+    private static final double MAX_PLAIN = 1e7;
+
+    private Numbers() {
+    }
+
+    // Parses a literal of the form digits[.digits] in source[start, end).
+    static double parse(String source, int start, int end) {
+        long significand = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            if (fraction) scale++;
+            if (digits == 0 && c == '0') continue;
+            // More digits than a long holds; let the JDK do the long-hand work.
+            if (++digits > 18) return Double.parseDouble(source.substring(start, end));
+            significand = significand * 10 + (c - '0');
+        }
+
+        // Clinger's fast path: an exact significand divided by an exact power of ten is rounded
+        // once, by the division, so it is already the correctly rounded result.
+        if (significand <= MAX_EXACT && scale < POWERS.length) {
+            return scale == 0 ? (double) significand : significand / POWERS[scale];
+        }
+        return Double.parseDouble(source.substring(start, end));
+    }
+
+    // Appends value as Double.toString renders it, without the ".0" of integral values.
+    static void append(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude < MAX_PLAIN) {
+            boolean negative = Double.doubleToRawLongBits(value) < 0;
+            long whole = (long) magnitude;
+            if (whole == magnitude) {
+                if (negative) out.append('-');
+                out.append(whole);
+                return;
+            }
+
+            // Otherwise the shortest decimal is the first scale at which the nearest candidate
+            // reads back as value. When a neighbour would read back too, the JDK breaks the tie
+            // by distance, which is not worth redoing here.
+            if (magnitude >= MIN_PLAIN) {
+                for (int scale = 1; scale < LONG_POWERS.length; scale++) {
+                    double scaled = magnitude * POWERS[scale];
+                    if (scaled >= MAX_EXACT) break;
+                    long candidate = Math.round(scaled);
+                    if (candidate / POWERS[scale] != magnitude) continue;
+                    if ((candidate - 1) / POWERS[scale] == magnitude
+                            || (candidate + 1) / POWERS[scale] == magnitude) break;
+
+                    if (negative) out.append('-');
+                    appendFixed(out, candidate, scale);
+                    return;
+                }
+            }
+        }
+
+        String text = Double.toString(value);
+        int length = text.endsWith(".0") ? text.length() - 2 : text.length();
+        out.append(text, 0, length);
+    }
+
+    private static void appendFixed(StringBuilder out, long digits, int scale) {
+        long power = LONG_POWERS[scale];
+        out.append(digits / power).append('.');
+        long fraction = digits % power;
+        for (long place = power / 10; place > fraction && place > 1; place /= 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,254 @@
+package gauntlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Straight-line data-flow pass over a script's top-level statements. It drops stores to globals
+// that are overwritten before anything can read them, and replaces a pure expression with a
+// global that already holds its value.
+//
+// Output and runtime errors must not change, so a store is only dropped when its value cannot
+// fail and nothing between it and the overwrite can fail either: after a runtime error the REPL
+// can still read the global. Whatever the pass cannot see through (calls, imports, blocks, ifs,
+// declarations) ends everything it knows except which globals are defined.
+//
+// Every statement costs time in its own size only, so generated scripts with tens of thousands
+// of globals stay linear: holders are indexed by the globals they depend on, keys are bounded,
+// and the tables are replaced rather than cleared, since HashMap.clear() walks the whole table.
+class Optimizer {
+    // On unless the JVM runs with -Dgauntlet.optimize=false.
+    static final boolean ENABLED = !"false".equals(System.getProperty("gauntlet.optimize"));
+
+    // Expressions remembered at once; past this, new ones are not offered for reuse.
+    private static final int MAX_AVAILABLE = 4_096;
+    // Longer keys are not worth comparing; their expressions are never reused.
+    private static final int MAX_KEY = 256;
+
+    private enum Type { NUMBER, STRING, BOOLEAN, NIL, UNKNOWN }
+
+    private record Store(int index, boolean definedBefore) {
+    }
+
+    private record Holder(String key, String name, Set<String> reads) {
+    }
+
+    // A pure expression after the pass: its rewritten form, and the key and type of the original.
+    // The key is null when the expression is too long to remember.
+    private record Value(Expr expr, String key, Type type) {
+    }
+
+    private final List<Stmt> output = new ArrayList<>();
+    // Globals defined by statements already passed.
+    private final Set<String> defined = new HashSet<>();
+    // Types known since the last barrier; a defined global missing here holds an unknown type.
+    private Map<String, Type> types = new HashMap<>();
+    // Stores into output that nothing has read yet and that are safe to drop.
+    private Map<String, Store> pending = new HashMap<>();
+    // Pure expressions, by key, and the global known to hold their value.
+    private Map<String, Holder> available = new HashMap<>();
+    // The holders each global either is or reads, so a store to it forgets just those.
+    private Map<String, List<Holder>> dependents = new HashMap<>();
+
+    List<Stmt> optimize(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            switch (statement) {
+                case Stmt.Var var when var.initializer() == null -> store(var.name(),
+                        new Value(null, "nil", Type.NIL), Set.of(), true, var);
+                case Stmt.Var var when isPure(var.initializer()) -> {
+                    Set<String> reads = new HashSet<>();
+                    Value value = visit(var.initializer(), reads);
+                    store(var.name(), value, reads, true, new Stmt.Var(var.name(), value.expr(), var.binding()));
+                }
+                case Stmt.Expression expression when expression.expression() instanceof Expr.Assign
+                        && isPure(((Expr.Assign) expression.expression()).value()) -> {
+                    Expr.Assign assign = (Expr.Assign) expression.expression();
+                    Set<String> reads = new HashSet<>();
+                    Value value = visit(assign.value(), reads);
+                    store(assign.name(), value, reads, false, new Stmt.Expression(
+                            new Expr.Assign(assign.name(), value.expr(), assign.binding())));
+                }
+                case Stmt.Expression expression when isPure(expression.expression()) ->
+                        output.add(new Stmt.Expression(visit(expression.expression(), new HashSet<>()).expr()));
+                case Stmt.Print print when isPure(print.expression()) ->
+                        output.add(new Stmt.Print(visit(print.expression(), new HashSet<>()).expr()));
+                default -> barrier(statement);
+            }
+        }
+
+        List<Stmt> live = new ArrayList<>(output.size());
+        for (Stmt statement : output) {
+            if (statement != null) live.add(statement);
+        }
+        return live;
+    }
+
+    // Evaluating expr reads its globals, so their stores stay; if it could fail, all of them do.
+    // reads collects every global the original or the rewritten form reads.
+    private Value visit(Expr expr, Set<String> reads) {
+        Value value = analyze(expr, reads);
+        for (String name : reads) pending.remove(name);
+        if (value.type() == null) forgetPending();
+        return value;
+    }
+
+    private void store(Token name, Value value, Set<String> reads, boolean declaration, Stmt rewritten) {
+        String target = name.lexeme();
+        boolean defined = this.defined.contains(target);
+        // Assigning an undefined global fails.
+        if (!declaration && !defined) forgetPending();
+
+        // Whether the output defines target before this store.
+        boolean definedBefore = defined;
+        Store dead = pending.remove(target);
+        if (dead != null) {
+            Stmt old = output.get(dead.index());
+            // A declaration that replaces one takes over defining the variable.
+            if (old instanceof Stmt.Var && declaration) definedBefore = dead.definedBefore();
+            // A later assignment still needs the variable to exist.
+            if (old instanceof Stmt.Var && !dead.definedBefore() && !declaration) {
+                Stmt.Var var = (Stmt.Var) old;
+                output.set(dead.index(), new Stmt.Var(var.name(), null, var.binding()));
+            } else {
+                output.set(dead.index(), null);
+            }
+        }
+
+        forgetDependents(target);
+        this.defined.add(target);
+        types.put(target, value.type() == null ? Type.UNKNOWN : value.type());
+        if (value.expr() != null && value.key() != null && !isTrivial(value.expr()) && !reads.contains(target)) {
+            remember(new Holder(value.key(), target, reads));
+        }
+
+        if (value.type() != null && (declaration || defined)) {
+            pending.put(target, new Store(output.size(), definedBefore));
+        }
+        output.add(rewritten);
+    }
+
+    private void barrier(Stmt statement) {
+        forgetPending();
+        if (!available.isEmpty() || !dependents.isEmpty()) {
+            available = new HashMap<>();
+            dependents = new HashMap<>();
+        }
+        if (!types.isEmpty()) types = new HashMap<>();
+        switch (statement) {
+            case Stmt.Class klass -> defined.add(klass.name().lexeme());
+            case Stmt.Function function -> defined.add(function.name().lexeme());
+            case Stmt.Var var -> defined.add(var.name().lexeme());
+            default -> {
+            }
+        }
+        output.add(statement);
+    }
+
+    private void forgetPending() {
+        if (!pending.isEmpty()) pending = new HashMap<>();
+    }
+
+    private void remember(Holder holder) {
+        if (available.size() >= MAX_AVAILABLE || available.putIfAbsent(holder.key(), holder) != null) return;
+        dependents.computeIfAbsent(holder.name(), name -> new ArrayList<>()).add(holder);
+        for (String read : holder.reads()) dependents.computeIfAbsent(read, name -> new ArrayList<>()).add(holder);
+    }
+
+    // A holder may already be gone, or its key held by a newer one; only the holder itself is removed.
+    private void forgetDependents(String global) {
+        List<Holder> holders = dependents.remove(global);
+        if (holders == null) return;
+        for (Holder holder : holders) available.remove(holder.key(), holder);
+    }
+
+    // One bottom-up walk: the largest subexpression some global already holds is read from it.
+    private Value analyze(Expr expr, Set<String> reads) {
+        return switch (expr) {
+            case Expr.Binary binary -> {
+                Value left = analyze(binary.left(), reads);
+                Value right = analyze(binary.right(), reads);
+                Expr rewritten = left.expr() == binary.left() && right.expr() == binary.right()
+                        ? binary : new Expr.Binary(left.expr(), binary.operator(), right.expr());
+                String key = left.key() == null || right.key() == null ? null
+                        : bounded("(" + binary.operator().lexeme() + " " + left.key() + " " + right.key() + ")");
+                yield reuse(new Value(rewritten, key, binaryType(binary, left.type(), right.type())),
+                        binary.operator(), reads);
+            }
+            case Expr.Grouping grouping -> {
+                Value inner = analyze(grouping.expression(), reads);
+                Expr rewritten = inner.expr() == grouping.expression() ? grouping : new Expr.Grouping(inner.expr());
+                yield new Value(rewritten, inner.key(), inner.type());
+            }
+            case Expr.Literal literal -> {
+                Object value = literal.value();
+                if (value == null) yield new Value(literal, "nil", Type.NIL);
+                if (value instanceof Double) yield new Value(literal, value.toString(), Type.NUMBER);
+                if (value instanceof String) yield new Value(literal, bounded("\"" + value + "\""), Type.STRING);
+                yield new Value(literal, value.toString(), Type.BOOLEAN);
+            }
+            case Expr.Unary unary -> {
+                Value right = analyze(unary.right(), reads);
+                Expr rewritten = right.expr() == unary.right() ? unary : new Expr.Unary(unary.operator(), right.expr());
+                Type type = right.type() == null ? null
+                        : unary.operator().type() == TokenType.BANG ? Type.BOOLEAN
+                        : right.type() == Type.NUMBER ? Type.NUMBER : null;
+                String key = right.key() == null ? null : bounded("(" + unary.operator().lexeme() + " " + right.key() + ")");
+                yield reuse(new Value(rewritten, key, type), unary.operator(), reads);
+            }
+            case Expr.Variable variable -> {
+                String name = variable.name().lexeme();
+                reads.add(name);
+                yield new Value(variable, name, defined.contains(name) ? types.getOrDefault(name, Type.UNKNOWN) : null);
+            }
+            default -> throw new IllegalArgumentException("Not a pure expression: " + expr);
+        };
+    }
+
+    private Value reuse(Value value, Token near, Set<String> reads) {
+        if (value.key() == null) return value;
+        Holder holder = available.get(value.key());
+        if (holder == null) return value;
+
+        Expr read = new Expr.Variable(new Token(TokenType.IDENTIFIER, holder.name(), null,
+                near.line(), near.offset()), new Binding());
+        reads.add(holder.name());
+        return new Value(read, value.key(), value.type());
+    }
+
+    private static String bounded(String key) {
+        return key.length() > MAX_KEY ? null : key;
+    }
+
+    // The result type, or null if the operator might fail on these operands.
+    private static Type binaryType(Expr.Binary binary, Type left, Type right) {
+        if (left == null || right == null) return null;
+        return switch (binary.operator().type()) {
+            case BANG_EQUAL, EQUAL_EQUAL -> Type.BOOLEAN;
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL ->
+                    left == Type.NUMBER && right == Type.NUMBER ? Type.BOOLEAN : null;
+            case MINUS, SLASH, STAR -> left == Type.NUMBER && right == Type.NUMBER ? Type.NUMBER : null;
+            case PLUS -> left == right && (left == Type.NUMBER || left == Type.STRING) ? left : null;
+            default -> null;
+        };
+    }
+
+    private static boolean isPure(Expr expr) {
+        return switch (expr) {
+            case Expr.Binary binary -> isPure(binary.left()) && isPure(binary.right());
+            case Expr.Grouping grouping -> isPure(grouping.expression());
+            case Expr.Literal literal -> true;
+            case Expr.Unary unary -> isPure(unary.right());
+            case Expr.Variable variable -> true;
+            default -> false;
+        };
+    }
+
+    // Not worth holding in another variable.
+    private static boolean isTrivial(Expr expr) {
+        while (expr instanceof Expr.Grouping) expr = ((Expr.Grouping) expr).expression();
+        return expr instanceof Expr.Literal || expr instanceof Expr.Variable;
+    }
+}
@@ -1,7 +1,10 @@
 package gauntlet;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static gauntlet.Gauntlet.report;
 import static gauntlet.TokenType.*;
@@ -10,11 +13,43 @@ public class Parser {
     private static class ParseError extends RuntimeException {
     }
 
+    // -Dgauntlet.lazy=true pre-parses function bodies and top-level blocks, see Body.
+    private static final boolean LAZY = Boolean.getBoolean("gauntlet.lazy");
+
     private final List<Token> tokens;
+    // The text the tokens were scanned from, kept for pre-parsed bodies; null disables lazy mode.
+    private final String source;
+    // Pulls more tokens while they are still being scanned; null when all tokens are known up front.
+    private final Supplier<List<Token>> more;
     private int current = 0;
+    private final boolean lazy;
+    // How many blocks and function bodies enclose the current token.
+    private int depth = 0;
+    private boolean hadError = false;
 
     public Parser(List<Token> tokens) {
+        this(null, tokens);
+    }
+
+    Parser(String source, List<Token> tokens) {
         this.tokens = tokens;
+        this.more = null;
+        this.source = source;
+        this.lazy = LAZY && source != null;
+    }
+
+    Parser(String source, Supplier<List<Token>> more) {
+        this.tokens = new ArrayList<>();
+        this.more = more;
+        this.source = source;
+        this.lazy = LAZY && source != null;
+    }
+
+    // For a pre-parsed body: its tokens from after the opening brace, ending in EOF.
+    static Parser forBody(String source, List<Token> tokens) {
+        Parser parser = new Parser(source, tokens);
+        parser.depth = 1;
+        return parser;
     }
 
     private Expr expression() {
@@ -29,8 +64,11 @@ public class Parser {
             Expr value = assignment();
 
             if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.Assign(name, value);
+                Token name = ((Expr.Variable)expr).name();
+                return new Expr.Assign(name, value, new Binding());
+            } else if (expr instanceof Expr.Get) {
+                Expr.Get get = (Expr.Get)expr;
+                return new Expr.Set(get.object(), get.name(), value, new PropertyCache());
             }
 
             error(equals, "Invalid assignment target.");
@@ -82,6 +120,7 @@ public class Parser {
     }
 
     private Token peek() {
+        while (current >= tokens.size()) tokens.addAll(more.get());
         return tokens.get(current);
     }
 
@@ -132,20 +171,52 @@ public class Parser {
             return new Expr.Unary(operator, right);
         }
 
-        return primary();
+        return call();
+    }
+
+    private Expr call() {
+        Expr expr = primary();
+
+        while (true) {
+            if (match(LEFT_PAREN)) {
+                expr = finishCall(expr);
+            } else if (match(DOT)) {
+                Token name = consume(IDENTIFIER, "Expect property name after '.'.");
+                expr = new Expr.Get(expr, name, new PropertyCache());
+            } else {
+                break;
+            }
+        }
+
+        return expr;
+    }
+
+    private Expr finishCall(Expr callee) {
+        List<Expr> arguments = new ArrayList<>();
+        if (!check(RIGHT_PAREN)) {
+            do {
+                if (arguments.size() >= 255) {
+                    error(peek(), "Can't have more than 255 arguments.");
+                }
+                arguments.add(expression());
+            } while (match(COMMA));
+        }
+
+        Token paren = consume(RIGHT_PAREN, "Expect ')' after arguments.");
+        return new Expr.Call(callee, paren, arguments);
     }
 
     private Expr primary() {
-        if (match(FALSE)) return new Expr.Literal(false);
-        if (match(TRUE)) return new Expr.Literal(true);
-        if (match(NIL)) return new Expr.Literal(null);
+        if (match(FALSE)) return new Expr.Literal(false, previous());
+        if (match(TRUE)) return new Expr.Literal(true, previous());
+        if (match(NIL)) return new Expr.Literal(null, previous());
 
         if (match(NUMBER, STRING)) {
-            return new Expr.Literal(previous().litteral());
+            return new Expr.Literal(previous().litteral(), previous());
         }
 
         if(match(IDENTIFIER)){
-            return new Expr.Variable(previous());
+            return new Expr.Variable(previous(), new Binding());
         }
 
         if (match(LEFT_PAREN)) {
@@ -163,14 +234,39 @@ public class Parser {
     }
 
     private ParseError error(Token token, String message) {
+        hadError = true;
         if (token.type() == TokenType.EOF) {
             report(token.line(), " at end", message);
         } else {
-            report(token.line(), " at '" + token.lexeme() + "'", message);
+            report(token.line(), " at '" + lexeme(token) + "'", message);
         }
         return new ParseError();
     }
 
+    // Number tokens carry no lexeme, so it is read back as the scanner matched it: digits[.digits].
+    private String lexeme(Token token) {
+        if (token.type() != NUMBER) return token.lexeme();
+        if (source == null) {
+            StringBuilder text = new StringBuilder();
+            Numbers.append(text, (Double) token.litteral());
+            return text.toString();
+        }
+        int end = digits(token.offset());
+        if (end + 1 < source.length() && source.charAt(end) == '.' && isDigit(source.charAt(end + 1))) {
+            end = digits(end + 1);
+        }
+        return source.substring(token.offset(), end);
+    }
+
+    private int digits(int from) {
+        while (from < source.length() && isDigit(source.charAt(from))) from++;
+        return from;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
     private void sync() {
         advance();
 
@@ -182,6 +278,7 @@ public class Parser {
                 case VAR:
                 case FOR:
                 case IF:
+                case IMPORT:
                 case WHILE:
                 case PRINT:
                 case RETURN:
@@ -193,15 +290,40 @@ public class Parser {
 
     List<Stmt> parse() {
         List<Stmt> statements = new ArrayList<>();
-        while (!isAtEnd()) {
-            statements.add(declaration());
+        while (hasNext()) {
+            statements.add(next());
         }
         return statements;
     }
 
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    // Parses one top-level declaration; null if it had a syntax error.
+    Stmt next() {
+        return declaration();
+    }
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    List<Stmt> body() {
+        return block();
+    }
+
+    // Index of the next token to be consumed.
+    int position() {
+        return current;
+    }
+
     private Stmt declaration() {
         try {
+            if(match(CLASS)) return classDeclaration();
+            if(match(FUN)) return function();
             if(match(VAR)) return varDeclaration();
+            if(match(IMPORT)) return importDeclaration();
             return statement();
         }catch (ParseError error){
             sync();
@@ -218,15 +340,126 @@ public class Parser {
         }
 
         consume(SEMICOLON, "Expect ';' after variable declaration.");
-        return new Stmt.Var(name,initializer);
+        return new Stmt.Var(name, initializer, new Binding());
+    }
+
+    private Stmt classDeclaration() {
+        Token name = consume(IDENTIFIER, "Expect class name.");
+        consume(LEFT_BRACE, "Expect '{' before class body.");
+        consume(RIGHT_BRACE, "Expect '}' after class body.");
+        return new Stmt.Class(name, new Binding());
+    }
+
+    private Stmt function() {
+        Token name = consume(IDENTIFIER, "Expect function name.");
+        consume(LEFT_PAREN, "Expect '(' after function name.");
+        List<Token> parameters = new ArrayList<>();
+        if (!check(RIGHT_PAREN)) {
+            do {
+                if (parameters.size() >= 255) {
+                    error(peek(), "Can't have more than 255 parameters.");
+                }
+                parameters.add(consume(IDENTIFIER, "Expect parameter name."));
+            } while (match(COMMA));
+        }
+        consume(RIGHT_PAREN, "Expect ')' after parameters.");
+
+        consume(LEFT_BRACE, "Expect '{' before function body.");
+        Layout layout = new Layout();
+        Body body = body(parameters, layout);
+        return new Stmt.Function(name, parameters, body, layout, new Binding());
+    }
+
+    private Stmt importDeclaration() {
+        Token keyword = previous();
+        Token path = consume(STRING, "Expect module path after 'import'.");
+        consume(SEMICOLON, "Expect ';' after import.");
+        return new Stmt.Import(keyword, path);
     }
 
     private Stmt statement() {
+        if (match(IF)) return ifStatement();
         if (match(PRINT)) return printStatement();
+        if (match(RETURN)) return returnStatement();
+        if (match(LEFT_BRACE)) {
+            Layout layout = new Layout();
+            return new Stmt.Block(body(null, layout), layout);
+        }
 
         return expressionStatement();
     }
 
+    private Stmt ifStatement() {
+        consume(LEFT_PAREN, "Expect '(' after 'if'.");
+        Expr condition = expression();
+        consume(RIGHT_PAREN, "Expect ')' after if condition.");
+
+        Stmt thenBranch = statement();
+        Stmt elseBranch = null;
+        if (match(ELSE)) {
+            elseBranch = statement();
+        }
+
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    private Stmt returnStatement() {
+        Token keyword = previous();
+        Expr value = null;
+        if (!check(SEMICOLON)) {
+            value = expression();
+        }
+
+        consume(SEMICOLON, "Expect ';' after return value.");
+        return new Stmt.Return(keyword, value);
+    }
+
+    // Called after the opening brace; params is null for a block.
+    private Body body(List<Token> params, Layout layout) {
+        if (lazy && (params != null || depth == 0)) return skipBody(params, layout);
+
+        Token brace = previous();
+        depth++;
+        try {
+            return Body.of(brace, block());
+        } finally {
+            depth--;
+        }
+    }
+
+    // Pre-parse: match braces and note the names used, without building any nodes.
+    private Body skipBody(List<Token> params, Layout layout) {
+        Token brace = previous();
+        Set<String> names = new HashSet<>();
+        for (int open = 1; open > 0; ) {
+            if (isAtEnd()) throw error(peek(), "Expect '}' after block.");
+            Token token = advance();
+            switch (token.type()) {
+                case LEFT_BRACE -> open++;
+                case RIGHT_BRACE -> open--;
+                case IDENTIFIER -> {
+                    // Property names after '.' are not variables.
+                    if (tokens.get(current - 2).type() != DOT) names.add(token.lexeme());
+                }
+            }
+        }
+        // Only source offsets are kept; the body is scanned again when it first runs.
+        int from = brace.offset() + 1;
+        int to = previous().offset() + 1;
+        return Body.lazy(source, from, to, brace, names, params, layout);
+    }
+
+    private List<Stmt> block() {
+        List<Stmt> statements = new ArrayList<>();
+
+        while (!check(RIGHT_BRACE) && !isAtEnd()) {
+            statements.add(declaration());
+        }
+
+        consume(RIGHT_BRACE, "Expect '}' after block.");
+        return statements;
+    }
+
     private Stmt printStatement() {
         Expr value = expression();
         consume(SEMICOLON, "Expect ';' after value.");
@@ -0,0 +1,18 @@
+package gauntlet;
+
+public interface PhaseStatsMBean {
+    long getCount();
+
+    long getTotalNanos();
+
+    long getMaxNanos();
+
+    double getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    // Bucket i counts the samples that took less than 2^i nanoseconds.
+    long[] getHistogram();
+}
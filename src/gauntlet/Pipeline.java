@@ -0,0 +1,172 @@
+package gauntlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Scans, parses and executes as three stages joined by bounded queues, so top-level statements
+// start running while the rest of the file is still being read.
+//
+// Scanning and parsing only compute, so they get platform threads. The execute stage runs the
+// script, which may block in sleep or readFile, so it gets a virtual thread and the caller waits.
+//
+// Syntax errors stay deterministic: every statement before the first error runs and none after it
+// does. The scan and parse stages collect their error messages instead of printing them, and the
+// execute stage prints them in order: parse errors as it reaches them, scan errors at the end.
+final class Pipeline {
+    private static final int TOKEN_BATCH = 512;
+    private static final int CAPACITY = 64;
+
+    private record Batch(List<Token> tokens, int firstError, String errors) {
+    }
+
+    // A parsed statement, or a failure carrying the syntax errors that caused it.
+    private record Item(Stmt stmt, String errors, boolean failed, boolean last) {
+    }
+
+    private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(CAPACITY);
+    private final BlockingQueue<Item> items = new ArrayBlockingQueue<>(CAPACITY);
+
+    private Pipeline() {
+    }
+
+    static void run(String src, Session session) {
+        Pipeline pipeline = new Pipeline();
+        Throwable[] failure = new Throwable[1];
+        Thread executor = Thread.ofVirtual().name("gauntlet-execute").start(() -> {
+            try {
+                Gauntlet.runIn(session, () -> pipeline.execute(src, session));
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        try {
+            executor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted.", e);
+        }
+        if (failure[0] instanceof RuntimeException e) throw e;
+        if (failure[0] instanceof Error e) throw e;
+    }
+
+    private void execute(String src, Session session) {
+        start("gauntlet-scan", errors -> scan(src, errors));
+        start("gauntlet-parse", errors -> parse(src, errors));
+
+        Metrics.PhaseEvent execute = Metrics.begin(Metrics.Phase.EXECUTE);
+        long executed = 0;
+        boolean running = true;
+        for (; ; ) {
+            Item item = take(items);
+            if (!item.errors().isEmpty()) {
+                session.err.print(item.errors());
+                session.hasError = true;
+            }
+            if (item.failed()) running = false;
+            if (item.last()) break;
+
+            // Keep draining after a failure so every syntax error is still reported.
+            if (running) {
+                running = session.interpreter.interpret(item.stmt());
+                executed++;
+            }
+        }
+        Metrics.end(execute, Metrics.Phase.EXECUTE, executed);
+    }
+
+    private void scan(String src, Errors errors) {
+        Metrics.PhaseEvent scan = Metrics.begin(Metrics.Phase.SCAN);
+        Scanner scanner = new Scanner(src);
+        long[] count = new long[1];
+        try {
+            scanner.scanTokens(TOKEN_BATCH, tokens -> {
+                count[0] += tokens.size();
+                put(batches, new Batch(tokens, scanner.firstError(), errors.drain()));
+            });
+        } catch (RuntimeException | Error e) {
+            // Let the parse stage finish instead of waiting forever for the rest of the tokens.
+            put(batches, new Batch(List.of(new Token(TokenType.EOF, 0, 0)), 0, "Scanner failed: " + e + "\n"));
+            throw e;
+        }
+        Metrics.end(scan, Metrics.Phase.SCAN, count[0]);
+    }
+
+    private void parse(String src, Errors errors) {
+        Metrics.PhaseEvent parse = Metrics.begin(Metrics.Phase.PARSE);
+        StringBuilder scanErrors = new StringBuilder();
+        int[] firstScanError = {-1};
+        Parser parser = new Parser(src, () -> {
+            Batch batch = take(batches);
+            scanErrors.append(batch.errors());
+            firstScanError[0] = batch.firstError();
+            return batch.tokens();
+        });
+
+        Resolver resolver = new Resolver();
+        long parsed = 0;
+        try {
+            while (parser.hasNext()) {
+                Stmt stmt = parser.next();
+                if (stmt != null) resolver.resolve(stmt);
+                String reported = errors.drain();
+                boolean failed = stmt == null || !reported.isEmpty()
+                        || (firstScanError[0] >= 0 && firstScanError[0] < parser.position());
+                put(items, new Item(stmt, reported, failed, false));
+                parsed++;
+            }
+            put(items, new Item(null, errors.drain() + scanErrors, !scanErrors.isEmpty(), true));
+        } catch (RuntimeException | Error e) {
+            put(items, new Item(null, errors.drain() + scanErrors + "Parser failed: " + e + "\n", true, true));
+            throw e;
+        }
+        Metrics.end(parse, Metrics.Phase.PARSE, parsed);
+    }
+
+    // Errors reported by a stage thread, held until the execute stage prints them.
+    private static final class Errors {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final Session session = new Session(new PrintStream(OutputStream.nullOutputStream()),
+                new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+        String drain() {
+            if (buffer.size() == 0) return "";
+            String text = buffer.toString(StandardCharsets.UTF_8);
+            buffer.reset();
+            return text;
+        }
+    }
+
+    private interface Stage {
+        void run(Errors errors);
+    }
+
+    private static void start(String name, Stage stage) {
+        Errors errors = new Errors();
+        Thread thread = new Thread(() -> Gauntlet.runIn(errors.session, () -> stage.run(errors)), name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T value) {
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted.", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted.", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package gauntlet;
+
+// Inline cache for one property get or set site, keyed on the receiver's shape. It starts
+// monomorphic, keeps up to POLYMORPHIC_LIMIT shapes, and past that goes megamorphic and always
+// takes the shape lookup. Entries are immutable and swapped in whole, so sites shared between
+// threads (cached modules, the server) can race on the cache without reading a torn entry.
+final class PropertyCache {
+    private static final int POLYMORPHIC_LIMIT = 4;
+
+    // For gets, from == to. For sets that add a field, to is the shape after the transition.
+    private record Entry(Shape from, Shape to, int index) {
+    }
+
+    private Entry monomorphic;
+    private Entry[] polymorphic;
+    private boolean megamorphic;
+
+    Object get(GauntletInstance instance, Token name) {
+        Entry entry = find(instance.shape);
+        if (entry == null) {
+            int index = instance.shape.indexOf(name.lexeme());
+            if (index < 0) throw new RuntimeError(name, "Undefined property '" + name.lexeme() + "'.");
+            entry = new Entry(instance.shape, instance.shape, index);
+            remember(entry);
+        }
+        return instance.slots[entry.index()];
+    }
+
+    void set(GauntletInstance instance, Token name, Object value) {
+        Shape shape = instance.shape;
+        Entry entry = find(shape);
+        if (entry == null) {
+            int index = shape.indexOf(name.lexeme());
+            if (index >= 0) {
+                entry = new Entry(shape, shape, index);
+            } else {
+                Shape next = shape.with(name.lexeme());
+                entry = new Entry(shape, next, next.size() - 1);
+            }
+            remember(entry);
+        }
+        instance.write(entry.to(), entry.index(), value);
+    }
+
+    private Entry find(Shape shape) {
+        Entry entry = monomorphic;
+        if (entry != null && entry.from() == shape) return entry;
+
+        Entry[] entries = polymorphic;
+        if (entries != null) {
+            for (Entry candidate : entries) {
+                if (candidate != null && candidate.from() == shape) return candidate;
+            }
+        }
+        return null;
+    }
+
+    private void remember(Entry entry) {
+        if (megamorphic) return;
+        if (monomorphic == null) {
+            monomorphic = entry;
+            return;
+        }
+
+        Entry[] entries = polymorphic;
+        int size = entries == null ? 0 : entries.length;
+        if (size + 1 >= POLYMORPHIC_LIMIT) {
+            megamorphic = true;
+            polymorphic = null;
+            return;
+        }
+        Entry[] grown = new Entry[size + 1];
+        if (entries != null) System.arraycopy(entries, 0, grown, 0, size);
+        grown[size] = entry;
+        polymorphic = grown;
+    }
+}
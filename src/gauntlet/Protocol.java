@@ -0,0 +1,122 @@
+package gauntlet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Framing shared by the server and its client, and the coordinator and its workers:
+// [kind: byte][length: int][payload].
+final class Protocol {
+    // A script to run, from the client: [path length: int][absolute path: UTF-8][source: UTF-8].
+    static final byte SOURCE = 1;
+    static final byte STDOUT = 2;
+    static final byte STDERR = 3;
+    static final byte EXIT = 4;
+    // Path of a script to run, from the coordinator to a worker.
+    static final byte SCRIPT = 5;
+
+    static final int MAX_PAYLOAD = 64 * 1024 * 1024;
+
+    record Frame(byte kind, byte[] payload) {
+        int exitCode() {
+            return ByteBuffer.wrap(payload).getInt();
+        }
+    }
+
+    // A SOURCE payload: the script's source, and where it lives so its imports resolve next to it.
+    record Source(Path script, String text) {
+        byte[] encode() {
+            byte[] path = script.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] source = text.getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(4 + path.length + source.length)
+                    .putInt(path.length).put(path).put(source).array();
+        }
+
+        static Source decode(byte[] payload) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            int length = payload.length < 4 ? -1 : buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) throw new IOException("Invalid source frame.");
+            String path = new String(payload, 4, length, StandardCharsets.UTF_8);
+            String text = new String(payload, 4 + length, payload.length - 4 - length, StandardCharsets.UTF_8);
+            return new Source(Path.of(path), text);
+        }
+    }
+
+    private Protocol() {
+    }
+
+    // Returns null when the peer closed the channel between frames.
+    static Frame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(5);
+        if (!fill(channel, header, true)) return null;
+        header.flip();
+        byte kind = header.get();
+        int length = header.getInt();
+        if (length < 0 || length > MAX_PAYLOAD) throw new IOException("Invalid frame length " + length + ".");
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        fill(channel, payload, false);
+        return new Frame(kind, payload.array());
+    }
+
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) return false;
+                throw new EOFException("Connection closed in the middle of a frame.");
+            }
+        }
+        return true;
+    }
+
+    // Thread safe, so stdout and stderr of one run can share a channel.
+    static final class Writer {
+        private final WritableByteChannel channel;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(byte kind, byte[] payload, int offset, int length) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(5).put(kind).putInt(length).flip();
+            ByteBuffer body = ByteBuffer.wrap(payload, offset, length);
+            lock.lock();
+            try {
+                while (header.hasRemaining()) channel.write(header);
+                while (body.hasRemaining()) channel.write(body);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void write(byte kind, byte[] payload) throws IOException {
+            write(kind, payload, 0, payload.length);
+        }
+
+        void exit(int code) throws IOException {
+            write(EXIT, ByteBuffer.allocate(4).putInt(code).array());
+        }
+
+        // Every write on the returned stream becomes one frame of the given kind.
+        OutputStream stream(byte kind) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) Writer.this.write(kind, b, off, len);
+                }
+            };
+        }
+    }
+}
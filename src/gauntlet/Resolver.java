@@ -0,0 +1,293 @@
+package gauntlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gauntlet.Gauntlet.report;
+
+// Runs between parsing and execution. Gives every local a slot in its frame, finds the locals that
+// inner functions capture, and writes the answers into the Binding and Layout holders on the AST,
+// so the interpreter never searches scopes or builds environments at runtime.
+//
+// Locals nobody captures live directly in frame slots. Captured ones live in a Cell in their slot,
+// and each closure gets a flat array of the cells it uses, copied from its creator's frame or from
+// its creator's own captured cells.
+class Resolver {
+    private static final class Local {
+        final int slot;
+        boolean defined = false;
+        boolean captured = false;
+        // Every declaration and reference bound to this local; finalized when its frame closes.
+        final List<Binding> uses = new ArrayList<>();
+
+        Local(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    // One runtime frame: a function body, or a block run directly from global code.
+    private static final class Frame {
+        final Frame enclosing;
+        final boolean function;
+        final Deque<Map<String, Local>> scopes = new ArrayDeque<>();
+        final List<Local> locals = new ArrayList<>();
+        final List<Layout.Capture> captures = new ArrayList<>();
+        // Captures fixed before a lazily parsed function body was resolved; null otherwise.
+        Map<String, Integer> inherited;
+        int nextSlot = 0;
+        int size = 0;
+
+        Frame(Frame enclosing, boolean function) {
+            this.enclosing = enclosing;
+            this.function = function;
+        }
+    }
+
+    // Null while resolving global code.
+    private Frame current = null;
+    private boolean hadError = false;
+
+    boolean hadError() {
+        return hadError;
+    }
+
+    void resolve(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            // Null where the parser already reported a syntax error.
+            if (statement != null) resolve(statement);
+        }
+    }
+
+    void resolve(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Block block -> {
+                if (current == null) {
+                    // A pre-parsed top-level block only sees globals, so it can be resolved later.
+                    if (!block.body().isParsed()) return;
+                    Frame frame = enter(false);
+                    resolve(block.body().statements());
+                    exit(frame, block.layout(), 0);
+                } else {
+                    beginScope();
+                    resolve(block.body().statements());
+                    endScope();
+                }
+            }
+            case Stmt.Class klass -> {
+                declare(klass.name(), klass.binding());
+                define(klass.name());
+            }
+            case Stmt.Expression expression -> resolve(expression.expression());
+            case Stmt.Function function -> {
+                // Defined before the body so the function can call itself.
+                declare(function.name(), function.binding());
+                define(function.name());
+                if (function.body().isParsed()) {
+                    resolveFunction(function);
+                } else {
+                    resolveCaptures(function);
+                }
+            }
+            case Stmt.If anIf -> {
+                resolve(anIf.condition());
+                resolve(anIf.thenBranch());
+                if (anIf.elseBranch() != null) resolve(anIf.elseBranch());
+            }
+            case Stmt.Import anImport -> {
+                if (current != null) error(anImport.keyword(), "Can only import from top-level code.");
+            }
+            case Stmt.Print print -> resolve(print.expression());
+            case Stmt.Return aReturn -> {
+                if (!inFunction()) error(aReturn.keyword(), "Can't return from top-level code.");
+                if (aReturn.value() != null) resolve(aReturn.value());
+            }
+            case Stmt.Var var -> {
+                declare(var.name(), var.binding());
+                if (var.initializer() != null) resolve(var.initializer());
+                define(var.name());
+            }
+        }
+    }
+
+    private void resolve(Expr expr) {
+        switch (expr) {
+            case Expr.Assign assign -> {
+                resolve(assign.value());
+                resolveName(assign.name(), assign.binding());
+            }
+            case Expr.Binary binary -> {
+                resolve(binary.left());
+                resolve(binary.right());
+            }
+            case Expr.Call call -> {
+                resolve(call.callee());
+                for (Expr argument : call.arguments()) resolve(argument);
+            }
+            case Expr.Get get -> resolve(get.object());
+            case Expr.Grouping grouping -> resolve(grouping.expression());
+            case Expr.Literal literal -> {
+            }
+            case Expr.Set set -> {
+                resolve(set.object());
+                resolve(set.value());
+            }
+            case Expr.Unary unary -> resolve(unary.right());
+            case Expr.Variable variable -> {
+                Local local = current == null ? null : find(current, variable.name().lexeme());
+                if (local != null && !local.defined) {
+                    error(variable.name(), "Can't read local variable in its own initializer.");
+                }
+                resolveName(variable.name(), variable.binding());
+            }
+        }
+    }
+
+    private void resolveFunction(Stmt.Function function) {
+        Frame frame = enter(true);
+        for (Token param : function.params()) {
+            declare(param, null);
+            define(param);
+        }
+        resolve(function.body().statements());
+        exit(frame, function.layout(), function.params().size());
+    }
+
+    // A pre-parsed function body is resolved when it first runs, but its closure is built before
+    // then, so it captures every enclosing local it might use: any name the body mentions.
+    private void resolveCaptures(Stmt.Function function) {
+        Frame frame = new Frame(current, true);
+        Map<String, Integer> names = new HashMap<>();
+        for (String name : function.body().names) {
+            int index = resolveUpvalue(frame, name);
+            if (index >= 0) names.put(name, index);
+        }
+        function.layout().captures = frame.captures.toArray(new Layout.Capture[0]);
+        function.layout().captureNames = names;
+    }
+
+    // Resolves a pre-parsed body on its first run; params is null for a block.
+    void resolveBody(List<Stmt> statements, List<Token> params, Layout layout) {
+        Frame frame = enter(params != null);
+        frame.inherited = layout.captureNames;
+        if (params != null) {
+            for (Token param : params) {
+                declare(param, null);
+                define(param);
+            }
+        }
+        resolve(statements);
+        exit(frame, layout, params == null ? 0 : params.size());
+    }
+
+    private void resolveName(Token name, Binding binding) {
+        if (current == null) return;
+
+        Local local = find(current, name.lexeme());
+        if (local != null) {
+            local.uses.add(binding);
+            return;
+        }
+
+        int upvalue = resolveUpvalue(current, name.lexeme());
+        if (upvalue >= 0) binding.set(Binding.Kind.UPVALUE, upvalue);
+        // Otherwise it stays global.
+    }
+
+    private int resolveUpvalue(Frame frame, String name) {
+        if (frame.enclosing == null) {
+            Integer index = frame.inherited == null ? null : frame.inherited.get(name);
+            return index == null ? -1 : index;
+        }
+
+        Local local = find(frame.enclosing, name);
+        if (local != null) {
+            local.captured = true;
+            return addCapture(frame, new Layout.Capture(true, local.slot));
+        }
+
+        int upvalue = resolveUpvalue(frame.enclosing, name);
+        if (upvalue < 0) return -1;
+        return addCapture(frame, new Layout.Capture(false, upvalue));
+    }
+
+    private static int addCapture(Frame frame, Layout.Capture capture) {
+        int index = frame.captures.indexOf(capture);
+        if (index >= 0) return index;
+        frame.captures.add(capture);
+        return frame.captures.size() - 1;
+    }
+
+    private static Local find(Frame frame, String name) {
+        for (Map<String, Local> scope : frame.scopes) {
+            Local local = scope.get(name);
+            if (local != null) return local;
+        }
+        return null;
+    }
+
+    private boolean inFunction() {
+        for (Frame frame = current; frame != null; frame = frame.enclosing) {
+            if (frame.function) return true;
+        }
+        return false;
+    }
+
+    private Frame enter(boolean function) {
+        current = new Frame(current, function);
+        current.scopes.push(new HashMap<>());
+        return current;
+    }
+
+    private void exit(Frame frame, Layout layout, int params) {
+        List<Integer> cellParams = new ArrayList<>();
+        for (Local local : frame.locals) {
+            Binding.Kind kind = local.captured ? Binding.Kind.CELL : Binding.Kind.LOCAL;
+            for (Binding use : local.uses) use.set(kind, local.slot);
+            if (local.captured && local.slot < params) cellParams.add(local.slot);
+        }
+
+        layout.frameSize = frame.size;
+        if (frame.inherited == null) layout.captures = frame.captures.toArray(new Layout.Capture[0]);
+        layout.cellParams = cellParams.stream().mapToInt(Integer::intValue).toArray();
+        current = frame.enclosing;
+    }
+
+    private void beginScope() {
+        current.scopes.push(new HashMap<>());
+    }
+
+    // Slots of a finished block go back to the frame for the next sibling block to reuse.
+    private void endScope() {
+        current.nextSlot -= current.scopes.pop().size();
+    }
+
+    private void declare(Token name, Binding binding) {
+        if (current == null) return;
+
+        Map<String, Local> scope = current.scopes.peek();
+        if (scope.containsKey(name.lexeme())) {
+            error(name, "Already a variable with this name in this scope.");
+            return;
+        }
+
+        Local local = new Local(current.nextSlot++);
+        current.size = Math.max(current.size, current.nextSlot);
+        if (binding != null) local.uses.add(binding);
+        current.locals.add(local);
+        scope.put(name.lexeme(), local);
+    }
+
+    private void define(Token name) {
+        if (current == null) return;
+        current.scopes.peek().get(name.lexeme()).defined = true;
+    }
+
+    private void error(Token token, String message) {
+        hadError = true;
+        report(token.line(), " at '" + token.lexeme() + "'", message);
+    }
+}
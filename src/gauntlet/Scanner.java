@@ -2,32 +2,66 @@ package gauntlet;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 class Scanner {
 
 
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final int end;
+    private List<Token> tokens = new ArrayList<>();
     private int start = 0;
     private int current = 0;
     private int line = 1;
+    // Tokens already handed to a sink, and the index of the first token after an error (-1 if none).
+    private int emitted = 0;
+    private int firstError = -1;
 
     Scanner(String source) {
+        this(source, 0, source.length(), 1);
+    }
+
+    // Scans only source[start, end), which begins on the given line.
+    Scanner(String source, int start, int end, int line) {
         assert source != null : "Source should not be null.";
         this.source = source;
+        this.start = start;
+        this.current = start;
+        this.end = end;
+        this.line = line;
     }
 
     boolean isAtEnd() {
-        return current >= source.length();
+        return current >= end;
     }
 
     public List<Token> scanTokens() {
+        scanTokens(Integer.MAX_VALUE, batch -> { });
+        return tokens;
+    }
+
+    // Hands tokens to sink in batches as they are scanned; the last batch ends with EOF.
+    void scanTokens(int batchSize, Consumer<List<Token>> sink) {
         while (!isAtEnd()) {
             start = current;
             scanToken();
+            if (tokens.size() >= batchSize) {
+                sink.accept(tokens);
+                emitted += tokens.size();
+                tokens = new ArrayList<>();
+            }
         }
-        tokens.add(new Token(TokenType.EOF, line));  // Using a simplified Token constructor for EOF
-        return tokens;
+        tokens.add(new Token(TokenType.EOF, line, current));  // Using a simplified Token constructor for EOF
+        sink.accept(tokens);
+    }
+
+    int firstError() {
+        return firstError;
+    }
+
+    private void error(String message) {
+        if (firstError < 0) firstError = emitted + tokens.size();
+        Gauntlet.error(line, message);
     }
 
     private void scanToken() {
@@ -41,6 +75,10 @@ class Scanner {
             } else {
                 // Special character cases
                 switch (c) {
+                    case '!' -> addToken(match('=') ? TokenType.BANG_EQUAL : TokenType.BANG);
+                    case '=' -> addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL);
+                    case '<' -> addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS);
+                    case '>' -> addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER);
                     case '/' -> handleSlash();
                     case ' ', '\r', '\t' -> { /* Ignore whitespace */ }
                     case '\n' -> line++;
@@ -51,7 +89,7 @@ class Scanner {
                         } else if (isAlpha(c)) {
                             identifier();
                         } else {
-                            Gauntlet.error(line, "Unexpected character.");
+                            error("Unexpected character.");
                         }
                     }
                 }
@@ -89,23 +127,27 @@ class Scanner {
             while (isDigit(peek()));
         }
 
-        addToken(TokenType.NUMBER, Double.parseDouble(source.substring(start, current)));
+        // No lexeme: a syntax error at this token reads its text back from the source.
+        tokens.add(new Token(TokenType.NUMBER, Token.EMPTY_LEXEME, Numbers.parse(source, start, current), line, start));
     }
 
     private void handleSlash() {
         if (match('/')) {
-            if ('*' == peekNext()) {
-                //Multi lines comment
-                // Ignore until we encounter "*/"
-                while ('*' != peekPrevious() && '/' != peek() && !isAtEnd()) {
-                    advance();
-                }
-                //Consume the "/"
-                advance();
-            } else {
-                //Single line comment
-                while (peek() != '\n' && !isAtEnd()) advance();
+            //Single line comment
+            while (peek() != '\n' && !isAtEnd()) advance();
+        } else if (match('*')) {
+            //Multi lines comment
+            // Ignore until we encounter "*/"
+            while (!(peek() == '*' && peekNext() == '/') && !isAtEnd()) {
+                if (advance() == '\n') line++;
             }
+
+            if (isAtEnd()) {
+                error("Unterminated comment.");
+                return;
+            }
+            //Consume the "*/"
+            current += 2;
         } else {
             addToken(TokenType.SLASH);
         }
@@ -121,7 +163,7 @@ class Scanner {
 
     private void addToken(TokenType type, Object litteral) {
         String text = source.substring(start, current);
-        tokens.add(new Token(type, text, litteral, line));
+        tokens.add(new Token(type, text, litteral, line, start));
     }
 
     private boolean match(char expected) {
@@ -138,15 +180,10 @@ class Scanner {
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
+        if (current + 1 >= end) return '\0';
         return source.charAt(current + 1);
     }
 
-    private char peekPrevious() {
-        assert current > 0 : "peekPrevious() can not be called if current is zero.";
-        return source.charAt(current - 1);
-    }
-
     private void string() {
         while (peek() != '"' && !isAtEnd()) {
             if (peek() == '\n') line++;
@@ -154,7 +191,7 @@ class Scanner {
         }
 
         if (isAtEnd()) {
-            Gauntlet.error(line, "Unterminated string.");
+            error("Unterminated string.");
             return;
         }
 
@@ -0,0 +1,9 @@
+package gauntlet;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// One imported file, compiled once per process. errors holds its syntax errors, if any; an
+// unreadable file is not kept, so it is read again once it appears.
+record ScriptModule(Path path, List<Stmt> statements, String errors, boolean readable) {
+}
@@ -0,0 +1,93 @@
+package gauntlet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps one warm JVM around and runs scripts sent over a Unix domain socket, each in its own session.
+class Server {
+    static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"), "gauntlet.sock");
+
+    private static final int WARMUP_RUNS = 2_000;
+    // Reported for a script that failed outside the interpreter's own error handling.
+    private static final int FAILURE_EXIT_CODE = 70;
+    private static final String WARMUP_SCRIPT = """
+            var a = 1;
+            var b = 2.5;
+            var s = "warm";
+            a = a + b * 3 - 4 / 2;
+            s = s + "er";
+            print -a;
+            print s;
+            print a == b;
+            print nil;
+            """;
+
+    // Every request runs on its own fork of prelude, so restored globals are shared, never rebuilt.
+    static void serve(Path socket, Env prelude) throws IOException {
+        warmUp();
+        // Freeze the prelude once up front; after that, forking it from request threads only reads it.
+        prelude.fork();
+
+        Files.deleteIfExists(socket);
+        // One virtual thread per request: scripts blocked in sleep or readFile don't hold a platform thread.
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            socket.toFile().deleteOnExit();
+            System.err.println("Listening on " + socket);
+
+            for (; ; ) {
+                SocketChannel client = server.accept();
+                workers.execute(() -> handle(client, prelude.fork()));
+            }
+        }
+    }
+
+    private static void handle(SocketChannel client, Env globals) {
+        try (client) {
+            Protocol.Frame request = Protocol.read(client);
+            if (request == null || request.kind() != Protocol.SOURCE) return;
+
+            Protocol.Source source = Protocol.Source.decode(request.payload());
+            Protocol.Writer writer = new Protocol.Writer(client);
+            PrintStream out = stream(writer, Protocol.STDOUT);
+            PrintStream err = stream(writer, Protocol.STDERR);
+            int code;
+            try {
+                code = Gauntlet.run(source.script(), source.text(), globals, out, err);
+            } catch (RuntimeException | StackOverflowError e) {
+                // A script the interpreter chokes on fails its own request, not the connection.
+                err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+                err.flush();
+                code = FAILURE_EXIT_CODE;
+            }
+            writer.exit(code);
+        } catch (IOException e) {
+            System.err.println("Request failed: " + e.getMessage());
+        }
+    }
+
+    static PrintStream stream(Protocol.Writer writer, byte kind) {
+        return new PrintStream(new BufferedOutputStream(writer.stream(kind), 8192), false, StandardCharsets.UTF_8);
+    }
+
+    // Run the hot interpreter paths enough times for the JIT to compile them before the first request.
+    private static void warmUp() {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            Gauntlet.run(WARMUP_SCRIPT, discard, discard);
+        }
+    }
+}
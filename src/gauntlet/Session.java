@@ -0,0 +1,29 @@
+package gauntlet;
+
+import java.io.PrintStream;
+
+// Everything one script run owns: its output streams, error flags and globals.
+// Runs on different threads each get their own session, so they never see each other's state.
+class Session {
+    final PrintStream out;
+    final PrintStream err;
+    final Interpreter interpreter;
+    boolean hasError = false;
+    boolean hadRuntimeError = false;
+
+    Session(PrintStream out, PrintStream err) {
+        this(out, err, new Env());
+    }
+
+    Session(PrintStream out, PrintStream err, Env globals) {
+        this.out = out;
+        this.err = err;
+        this.interpreter = new Interpreter(out, globals);
+    }
+
+    int exitCode() {
+        if (hasError) return 65;
+        if (hadRuntimeError) return 70;
+        return 0;
+    }
+}
@@ -0,0 +1,40 @@
+package gauntlet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Hidden class: the field layout shared by every instance that gained the same fields in the same
+// order. Shapes are immutable; adding a field follows (or creates) a transition to a child shape,
+// so instances built the same way end up sharing one shape and inline caches can key on it.
+final class Shape {
+    private final Map<String, Integer> slots;
+    private final ConcurrentMap<String, Shape> transitions = new ConcurrentHashMap<>();
+
+    private Shape(Map<String, Integer> slots) {
+        this.slots = slots;
+    }
+
+    static Shape root() {
+        return new Shape(Map.of());
+    }
+
+    // Slot index of name, or -1 when instances of this shape don't have that field.
+    int indexOf(String name) {
+        Integer index = slots.get(name);
+        return index == null ? -1 : index;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    Shape with(String name) {
+        return transitions.computeIfAbsent(name, field -> {
+            Map<String, Integer> next = new HashMap<>(slots);
+            next.put(field, slots.size());
+            return new Shape(Map.copyOf(next));
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package gauntlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Binary image of the global environment, so a prelude only has to be evaluated once.
+//
+// Layout (big endian): magic, version, entry count, entries, CRC32 of everything before it.
+// Each entry is a length-prefixed UTF-8 name, a tag byte and the value for that tag.
+//
+// Functions are stored as their source, printed back from the tree, and are parsed and resolved
+// again on restore. A global that holds the same object as an earlier one is stored as a
+// reference to it, so aliases stay aliases. Closures over locals and instances are rejected.
+final class Snapshot {
+    private static final int MAGIC = 0x474E5453; // "GNTS"
+    // Version 2 added functions, classes, arrays, natives and references; version 1 files still load.
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 2 + 4;
+    private static final int TRAILER_SIZE = 8;
+
+    private static final byte NIL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte NUMBER = 3;
+    private static final byte STRING = 4;
+    private static final byte FUNCTION = 5;
+    private static final byte CLASS = 6;
+    private static final byte ARRAY = 7;
+    private static final byte NATIVE = 8;
+    // The same object as the global named by the payload, written before this one.
+    private static final byte SAME = 9;
+
+    private Snapshot() {
+    }
+
+    static void write(Env env, Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(env.size());
+
+        IOException[] failure = new IOException[1];
+        Map<Object, String> written = new IdentityHashMap<>();
+        env.forEach((name, value) -> {
+            if (failure[0] != null) return;
+            try {
+                writeString(out, name);
+                writeValue(out, name, value, written);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        // Write next to the target and move it into place, so readers never see a torn file.
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, String name, Object value,
+                                   Map<Object, String> written) throws IOException {
+        boolean shared = value instanceof GauntletCallable || value instanceof NumArray;
+        String earlier = shared ? written.putIfAbsent(value, name) : null;
+        if (earlier != null) {
+            out.writeByte(SAME);
+            writeString(out, earlier);
+        } else if (value == null) {
+            out.writeByte(NIL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(NUMBER);
+            out.writeDouble((double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof GauntletFunction function) {
+            if (function.upvalues.length > 0) {
+                throw new IOException("Cannot snapshot '" + name + "': it is a closure over local variables.");
+            }
+            out.writeByte(FUNCTION);
+            writeString(out, function.declaration.name().lexeme());
+            writeString(out, source(name, function.declaration));
+        } else if (value instanceof GauntletClass klass) {
+            out.writeByte(CLASS);
+            writeString(out, klass.name);
+        } else if (value instanceof NumArray array) {
+            out.writeByte(ARRAY);
+            out.writeInt(array.values.length);
+            for (double element : array.values) out.writeDouble(element);
+        } else if (value instanceof GauntletCallable && Builtins.ALL.containsValue(value)) {
+            out.writeByte(NATIVE);
+            writeString(out, nativeName(value));
+        } else {
+            String kind = value instanceof GauntletInstance ? "an instance" : value.getClass().getSimpleName();
+            throw new IOException("Cannot snapshot '" + name + "': it holds " + kind + ", which snapshots do not support.");
+        }
+    }
+
+    // A pre-parsed body is parsed here; one that fails to parse cannot be stored.
+    private static String source(String name, Stmt.Function declaration) throws IOException {
+        try {
+            return SourcePrinter.print(declaration);
+        } catch (RuntimeError e) {
+            throw new IOException("Cannot snapshot '" + name + "': its body has a syntax error.");
+        }
+    }
+
+    private static String nativeName(Object value) {
+        for (Map.Entry<String, GauntletCallable> entry : Builtins.ALL.entrySet()) {
+            if (entry.getValue() == value) return entry.getKey();
+        }
+        throw new IllegalStateException("Not a native: " + value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    // Defines every snapshotted global in env. Nothing is defined unless the whole file is valid.
+    static void read(Path file, Env env) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) invalid("unexpected size " + size);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) invalid("not a snapshot file");
+            short version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                invalid("version " + version + " is not supported (expected at most " + VERSION + ")");
+            }
+
+            int bodyEnd = (int) size - TRAILER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(bodyEnd));
+            if (crc.getValue() != buffer.getLong(bodyEnd)) invalid("checksum mismatch");
+
+            ByteBuffer body = buffer.limit(bodyEnd);
+            int count = body.getInt();
+            if (count < 0) invalid("negative entry count");
+
+            Map<String, Object> staged = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = readString(body);
+                staged.put(name, readValue(body, staged));
+            }
+            if (body.hasRemaining()) invalid("trailing bytes after the last entry");
+
+            staged.forEach(env::define);
+        } catch (BufferUnderflowException e) {
+            invalid("truncated entry");
+        }
+    }
+
+    private static Object readValue(ByteBuffer body, Map<String, Object> staged) throws IOException {
+        byte tag = body.get();
+        return switch (tag) {
+            case NIL -> null;
+            case FALSE -> false;
+            case TRUE -> true;
+            case NUMBER -> body.getDouble();
+            case STRING -> readString(body);
+            case FUNCTION -> {
+                String declared = readString(body);
+                yield compile(declared, readString(body));
+            }
+            case CLASS -> new GauntletClass(readString(body));
+            case ARRAY -> {
+                int length = body.getInt();
+                if (length < 0 || length > body.remaining() / Double.BYTES) invalid("array length out of bounds");
+                double[] values = new double[length];
+                body.asDoubleBuffer().get(values);
+                body.position(body.position() + length * Double.BYTES);
+                yield new NumArray(values);
+            }
+            case NATIVE -> {
+                String name = readString(body);
+                if (!Builtins.ALL.containsKey(name)) invalid("unknown native '" + name + "'");
+                yield Builtins.ALL.get(name);
+            }
+            case SAME -> {
+                String name = readString(body);
+                if (!staged.containsKey(name)) invalid("reference to '" + name + "' before it is defined");
+                yield staged.get(name);
+            }
+            default -> throw new IOException("Invalid snapshot: unknown value tag " + tag + ".");
+        };
+    }
+
+    // Parses, resolves and declares a function in globals of its own; the caller's session is untouched.
+    private static GauntletFunction compile(String declared, String source) throws IOException {
+        Session scratch = new Session(new PrintStream(OutputStream.nullOutputStream()),
+                new PrintStream(OutputStream.nullOutputStream()));
+        Object[] function = new Object[1];
+        Gauntlet.runIn(scratch, () -> {
+            List<Stmt> statements = new Parser(source, new Scanner(source).scanTokens()).parse();
+            new Resolver().resolve(statements);
+            if (scratch.hasError || statements.size() != 1 || !(statements.get(0) instanceof Stmt.Function)) return;
+            scratch.interpreter.interpret(statements);
+            scratch.interpreter.globals().forEach((name, value) -> {
+                if (name.equals(declared)) function[0] = value;
+            });
+        });
+        if (!(function[0] instanceof GauntletFunction)) invalid("function '" + declared + "' does not compile");
+        return (GauntletFunction) function[0];
+    }
+
+    private static String readString(ByteBuffer body) throws IOException {
+        int length = body.getInt();
+        if (length < 0 || length > body.remaining()) invalid("string length out of bounds");
+        byte[] utf8 = new byte[length];
+        body.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void invalid(String reason) throws IOException {
+        throw new IOException("Invalid snapshot: " + reason + ".");
+    }
+}
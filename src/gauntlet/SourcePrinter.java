@@ -0,0 +1,156 @@
+package gauntlet;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Prints a function declaration back as source that parses to the same tree. Groupings are
+// nodes of their own, so printing the nodes in order gives back the original tokens. Each token
+// goes on its original line, so runtime errors in the reparsed function report the same lines.
+final class SourcePrinter {
+    private final StringBuilder out = new StringBuilder();
+    private int line = 1;
+
+    private SourcePrinter() {
+    }
+
+    static String print(Stmt.Function function) {
+        SourcePrinter printer = new SourcePrinter();
+        printer.stmt(function);
+        return printer.out.toString();
+    }
+
+    private void stmt(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Block block -> block(block.body());
+            case Stmt.Class klass -> {
+                piece("class", klass.name().line());
+                piece(klass.name().lexeme(), klass.name().line());
+                piece("{ }", -1);
+            }
+            case Stmt.Expression expression -> {
+                expr(expression.expression());
+                piece(";", -1);
+            }
+            case Stmt.Function function -> {
+                piece("fun", function.name().line());
+                piece(function.name().lexeme(), function.name().line());
+                piece("(", -1);
+                List<Token> params = function.params();
+                for (int i = 0; i < params.size(); i++) {
+                    if (i > 0) piece(",", -1);
+                    piece(params.get(i).lexeme(), params.get(i).line());
+                }
+                piece(")", -1);
+                block(function.body());
+            }
+            case Stmt.If anIf -> {
+                piece("if (", -1);
+                expr(anIf.condition());
+                piece(")", -1);
+                stmt(anIf.thenBranch());
+                if (anIf.elseBranch() != null) {
+                    piece("else", -1);
+                    stmt(anIf.elseBranch());
+                }
+            }
+            case Stmt.Import anImport -> {
+                piece("import", anImport.keyword().line());
+                piece(anImport.path().lexeme(), anImport.path().line());
+                piece(";", -1);
+            }
+            case Stmt.Print print -> {
+                piece("print", -1);
+                expr(print.expression());
+                piece(";", -1);
+            }
+            case Stmt.Return aReturn -> {
+                piece("return", aReturn.keyword().line());
+                if (aReturn.value() != null) expr(aReturn.value());
+                piece(";", -1);
+            }
+            case Stmt.Var var -> {
+                piece("var", var.name().line());
+                piece(var.name().lexeme(), var.name().line());
+                if (var.initializer() != null) {
+                    piece("=", -1);
+                    expr(var.initializer());
+                }
+                piece(";", -1);
+            }
+        }
+    }
+
+    private void block(Body body) {
+        piece("{", body.brace().line());
+        for (Stmt stmt : body.statements()) stmt(stmt);
+        piece("}", -1);
+    }
+
+    private void expr(Expr expr) {
+        switch (expr) {
+            case Expr.Assign assign -> {
+                piece(assign.name().lexeme(), assign.name().line());
+                piece("=", -1);
+                expr(assign.value());
+            }
+            case Expr.Binary binary -> {
+                expr(binary.left());
+                piece(binary.operator().lexeme(), binary.operator().line());
+                expr(binary.right());
+            }
+            case Expr.Call call -> {
+                expr(call.callee());
+                piece("(", -1);
+                for (int i = 0; i < call.arguments().size(); i++) {
+                    if (i > 0) piece(",", -1);
+                    expr(call.arguments().get(i));
+                }
+                piece(")", call.paren().line());
+            }
+            case Expr.Get get -> {
+                expr(get.object());
+                piece(".", -1);
+                piece(get.name().lexeme(), get.name().line());
+            }
+            case Expr.Grouping grouping -> {
+                piece("(", -1);
+                expr(grouping.expression());
+                piece(")", -1);
+            }
+            case Expr.Literal literal -> piece(literal(literal.value()), literal.token().line());
+            case Expr.Set set -> {
+                expr(set.object());
+                piece(".", -1);
+                piece(set.name().lexeme(), set.name().line());
+                piece("=", -1);
+                expr(set.value());
+            }
+            case Expr.Unary unary -> {
+                piece(unary.operator().lexeme(), unary.operator().line());
+                expr(unary.right());
+            }
+            case Expr.Variable variable -> piece(variable.name().lexeme(), variable.name().line());
+        }
+    }
+
+    // Number literals are never negative, and strings cannot contain a quote.
+    private static String literal(Object value) {
+        if (value == null) return "nil";
+        if (value instanceof Double number) return BigDecimal.valueOf(number).toPlainString();
+        if (value instanceof String string) return "\"" + string + "\"";
+        return value.toString();
+    }
+
+    // Starts text on the given line, or where the printer is when the line is not known (-1).
+    private void piece(String text, int at) {
+        if (at > line) {
+            out.repeat('\n', at - line);
+            line = at;
+        } else if (!out.isEmpty()) {
+            out.append(' ');
+        }
+        out.append(text);
+        // A string literal may span lines.
+        line += (int) text.chars().filter(c -> c == '\n').count();
+    }
+}
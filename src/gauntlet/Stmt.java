@@ -2,50 +2,32 @@ package gauntlet;
 
 import java.util.List;
 
-abstract class Stmt {
- interface Visitor<R> {
- R visitExpressionStmt(Expression stmt);
- R visitPrintStmt(Print stmt);
- R visitVarStmt(Var stmt);
- }
- static class Expression extends Stmt {
-    Expression(Expr expression) {
-      this.expression = expression;
+sealed interface Stmt {
+
+    record Block(Body body, Layout layout) implements Stmt {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitExpressionStmt(this);
+    record Class(Token name, Binding binding) implements Stmt {
     }
 
-    final Expr expression;
-  }
- static class Print extends Stmt {
-    Print(Expr expression) {
-      this.expression = expression;
+    record Expression(Expr expression) implements Stmt {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitPrintStmt(this);
+    record Function(Token name, List<Token> params, Body body, Layout layout, Binding binding) implements Stmt {
     }
 
-    final Expr expression;
-  }
- static class Var extends Stmt {
-    Var(Token name, Expr initializer) {
-      this.name = name;
-      this.initializer = initializer;
+    record If(Expr condition, Stmt thenBranch, Stmt elseBranch) implements Stmt {
     }
 
-    @Override
-    <R> R accept(Visitor<R> visitor) { 
-        return visitor.visitVarStmt(this);
+    record Import(Token keyword, Token path) implements Stmt {
     }
 
-    final Token name;
-    final Expr initializer;
-  }
+    record Print(Expr expression) implements Stmt {
+    }
 
- abstract <R> R accept(Visitor<R> visitor);
+    record Return(Token keyword, Expr value) implements Stmt {
+    }
+
+    record Var(Token name, Expr initializer, Binding binding) implements Stmt {
+    }
 }
@@ -1,11 +1,12 @@
 package gauntlet;
 
-record Token(TokenType type, String lexeme, Object litteral, int line) {
+// offset is where the lexeme starts in the source.
+record Token(TokenType type, String lexeme, Object litteral, int line, int offset) {
     public static final String EMPTY_LEXEME = "";
     public static final Object NULL_LITERAL = null;
 
-    public Token(TokenType type, int line) {
-        this(type, EMPTY_LEXEME, NULL_LITERAL, line);
+    public Token(TokenType type, int line, int offset) {
+        this(type, EMPTY_LEXEME, NULL_LITERAL, line, offset);
     }
 
     public String toString() {
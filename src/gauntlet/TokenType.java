@@ -13,7 +13,7 @@ enum TokenType {
     IDENTIFIER, STRING, NUMBER,
 
     // Keywords.
-    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
+    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, IMPORT, NIL, OR, PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
 
     EOF;
     public static final Map<Character, TokenType> SIMPLE_TOKENS = Map.ofEntries(
@@ -26,8 +26,7 @@ enum TokenType {
             Map.entry('-', TokenType.MINUS),
             Map.entry('+', TokenType.PLUS),
             Map.entry(';', TokenType.SEMICOLON),
-            Map.entry('*', TokenType.STAR),
-            Map.entry('=', TokenType.EQUAL)
+            Map.entry('*', TokenType.STAR)
     );
 
     public static final Map<String, TokenType> KEYWORDS = Map.ofEntries(
@@ -38,6 +37,7 @@ enum TokenType {
             Map.entry("for", TokenType.FOR),
             Map.entry("fun", TokenType.FUN),
             Map.entry("if", TokenType.IF),
+            Map.entry("import", TokenType.IMPORT),
             Map.entry("nil", TokenType.NIL),
             Map.entry("or", TokenType.OR),
             Map.entry("print", TokenType.PRINT),
@@ -7,20 +7,38 @@ import java.util.List;
 
 public class GenerateAst {
     public static void main(String[] args) throws IOException {
-        String outputDir = "C:\\Users\\milan\\IdeaProjects\\my-first-interpreter\\src\\gauntlet";
+        if (args.length > 1) {
+            System.err.println("Usage: generate_ast [output directory]");
+            System.exit(64);
+        }
+        String outputDir = args.length == 1 ? args[0] : "src/gauntlet";
         defineAst(outputDir, "Expr", Arrays.asList(
+                "Assign   : Token name, Expr value, Binding binding",
                 "Binary   : Expr left, Token operator, Expr right",
+                "Call     : Expr callee, Token paren, List<Expr> arguments",
+                "Get      : Expr object, Token name, PropertyCache cache",
                 "Grouping : Expr expression",
-                "Literal  : Object value",
-                "Unary    : Token operator, Expr right"
+                "Literal  : Object value, Token token",
+                "Set      : Expr object, Token name, Expr value, PropertyCache cache",
+                "Unary    : Token operator, Expr right",
+                "Variable : Token name, Binding binding"
         ));
 
         defineAst(outputDir, "Stmt", Arrays.asList(
+                "Block      : Body body, Layout layout",
+                "Class      : Token name, Binding binding",
                 "Expression : Expr expression",
-                "Print      : Expr expression"
+                "Function   : Token name, List<Token> params, Body body, Layout layout, Binding binding",
+                "If         : Expr condition, Stmt thenBranch, Stmt elseBranch",
+                "Import     : Token keyword, Token path",
+                "Print      : Expr expression",
+                "Return     : Token keyword, Expr value",
+                "Var        : Token name, Expr initializer, Binding binding"
         ));
     }
 
+    // Each base type is a sealed interface and every node a record, so the interpreter can dispatch
+    // with an exhaustive pattern-matching switch instead of visitor double dispatch.
     private static void defineAst(
             String outputDir, String baseName, List<String> types)
             throws IOException {
@@ -31,72 +49,29 @@ public class GenerateAst {
         writer.println();
         writer.println("import java.util.List;");
         writer.println();
-        writer.println("abstract class " + baseName + " {");
-
-        defineVisitor(writer, baseName, types);
+        writer.println("sealed interface " + baseName + " {");
 
-        // The AST classes.
+        // The AST records.
         for (String type : types) {
             String className = type.split(":")[0].trim();
             String fields = type.split(":")[1].trim();
             defineType(writer, baseName, className, fields);
         }
 
-        //Accept method
-        writer.println();
-        writer.println(" abstract <R> R accept(Visitor<R> visitor);");
-
         writer.println("}");
         writer.close();
     }
 
-    private static void defineVisitor(PrintWriter writer, String baseName, List<String> types) {
-        assert !types.isEmpty();
-        assert writer != null;
-        assert !baseName.isEmpty() && !baseName.isBlank();
-
-        writer.println(" interface Visitor<R> {");
-
-        for (String type : types) {
-            String typeName = type.split(":")[0].trim();
-            writer.println(" R visit" + typeName + baseName + "(" + typeName + " " + baseName.toLowerCase() + ");");
-        }
-
-        writer.println(" }");
-    }
-
     private static void defineType(
             PrintWriter writer,
             String baseName,
             String className,
             String fieldList) {
-        writer.println(" static class " + className + " extends " + baseName + " {");
-
-        // Constructor.
-        writer.println("    " + className + "(" + fieldList + ") {");
-
-        // Store parameters in fields.
-        String[] fields = fieldList.split(", ");
-        for (String field : fields) {
-            String name = field.split(" ")[1];
-            writer.println("      this." + name + " = " + name + ";");
-        }
-
-        writer.println("    }");
+        assert writer != null;
+        assert !baseName.isEmpty() && !baseName.isBlank();
 
-        // Visitor
         writer.println();
-        writer.println("    @Override");
-        writer.println("    <R> R accept(Visitor<R> visitor) { ");
-        writer.println("        return visitor.visit"+className+baseName+"(this);");
+        writer.println("    record " + className + "(" + fieldList + ") implements " + baseName + " {");
         writer.println("    }");
-
-        // Fields.
-        writer.println();
-        for (String field : fields) {
-            writer.println("    final " + field + ";");
-        }
-
-        writer.println("  }");
     }
-}
\ No newline at end of file
+}